@@ -0,0 +1,66 @@
+package org.doremus.string2vocabulary;
+
+/**
+ * Minimal Bloom filter for strings.
+ * It answers "maybe" or "definitely not" about the membership of a string.
+ */
+public class BloomFilter {
+  private final long[] bits;
+  private final int size;
+  private final int hashes;
+
+  /**
+   * @param expectedItems Number of strings that will be added
+   * @param fpp Expected false positive probability, e.g. 0.01
+   */
+  public BloomFilter(int expectedItems, double fpp) {
+    expectedItems = Math.max(1, expectedItems);
+    long m = (long) Math.ceil(-expectedItems * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+    m = Math.max(64, Math.min(m, Integer.MAX_VALUE - 63));
+    this.bits = new long[(int) ((m + 63) / 64)];
+    this.size = bits.length * 64;
+    this.hashes = Math.max(1, (int) Math.round((double) size / expectedItems * Math.log(2)));
+  }
+
+  public void add(String value) {
+    long hash = hash(value);
+    int h1 = (int) hash, h2 = (int) (hash >>> 32) | 1;
+    for (int i = 0; i < hashes; i++) {
+      int index = ((h1 + i * h2) & Integer.MAX_VALUE) % size;
+      bits[index >>> 6] |= 1L << index;
+    }
+  }
+
+  public boolean mightContain(String value) {
+    long hash = hash(value);
+    int h1 = (int) hash, h2 = (int) (hash >>> 32) | 1;
+    for (int i = 0; i < hashes; i++) {
+      int index = ((h1 + i * h2) & Integer.MAX_VALUE) % size;
+      if ((bits[index >>> 6] & (1L << index)) == 0) return false;
+    }
+    return true;
+  }
+
+  /**
+   * False positive probability expected from the current fill ratio of the filter
+   */
+  public double expectedFpp() {
+    long set = 0;
+    for (long word : bits) set += Long.bitCount(word);
+    return Math.pow((double) set / size, hashes);
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  // 64-bit FNV-1a
+  private static long hash(String value) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < value.length(); i++) {
+      hash ^= value.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+}
@@ -0,0 +1,150 @@
+package org.doremus.string2vocabulary;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Singulariser with a latency budget, wrapping a slower one (e.g. CoreNLP).
+ * - labels longer than the maximum length are not singularised;
+ * - singularisations run on a fixed number of worker threads, and if none of them gets free
+ *   within the timeout the label is not singularised;
+ * - singularisations exceeding the timeout (waiting for a worker included) are cancelled.
+ * In all cases no singular form is returned, so that the search goes on with the label as it is.
+ * Skips (too long), queue-outs (no free worker) and timeouts are counted in the RunStats.
+ *
+ * Each worker loads what it needs for a language (e.g. its CoreNLP pipeline) at its first singularisation
+ * in that language: the loading time is recorded apart, in the LOAD stage, and it is not part of the budget.
+ * A cancelled singularisation that ignores the interruption keeps its worker busy until it ends:
+ * no other thread, hence no other pipeline, is created in the meantime.
+ */
+public class BudgetedSingulariser implements Singulariser {
+  private final Singulariser delegate;
+  private final RunStats stats;
+  private final ExecutorService executor;
+  private final Semaphore free;
+  // languages already loaded by each worker
+  private final ThreadLocal<Set<String>> prepared = ThreadLocal.withInitial(HashSet::new);
+  private volatile int maxLength;
+  private volatile long timeoutMillis;
+
+  /**
+   * @param delegate The singulariser to run within the budget
+   * @param stats Where to count skips, queue-outs and timeouts
+   * @param maxLength Maximum length of the labels to singularise, 0 for no limit
+   * @param timeoutMillis Maximum time for a singularisation, 0 for no limit
+   */
+  public BudgetedSingulariser(Singulariser delegate, RunStats stats, int maxLength, long timeoutMillis) {
+    this(delegate, stats, maxLength, timeoutMillis, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param delegate The singulariser to run within the budget
+   * @param stats Where to count skips, queue-outs and timeouts
+   * @param maxLength Maximum length of the labels to singularise, 0 for no limit
+   * @param timeoutMillis Maximum time for a singularisation, 0 for no limit
+   * @param workers Number of worker threads, each one holding its own pipelines
+   */
+  public BudgetedSingulariser(Singulariser delegate, RunStats stats, int maxLength, long timeoutMillis, int workers) {
+    this.delegate = delegate;
+    this.stats = stats;
+    workers = Math.max(1, workers);
+    this.free = new Semaphore(workers);
+    this.executor = Executors.newFixedThreadPool(workers, runnable -> {
+      Thread thread = new Thread(runnable, "singulariser");
+      thread.setDaemon(true);
+      return thread;
+    });
+    setBudget(maxLength, timeoutMillis);
+  }
+
+  /**
+   * @param maxLength Maximum length of the labels to singularise, 0 for no limit
+   * @param timeoutMillis Maximum time for a singularisation, 0 for no limit
+   */
+  public void setBudget(int maxLength, long timeoutMillis) {
+    this.maxLength = maxLength;
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  @Override
+  public String toSingular(String label, boolean full, String lang) {
+    if (label == null) return null;
+    if (maxLength > 0 && label.length() > maxLength) {
+      stats.count(RunStats.Event.SINGULARISATION_SKIPPED);
+      return null;
+    }
+    long timeout = timeoutMillis;
+    if (timeout <= 0) return delegate.toSingular(label, full, lang);
+
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+    try {
+      if (!free.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+        stats.count(RunStats.Event.SINGULARISATION_QUEUED_OUT);
+        return null;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+
+    // the worker is freed when the singularisation ends, or here if it never started
+    AtomicBoolean started = new AtomicBoolean();
+    AtomicLong loadNanos = new AtomicLong();
+    CountDownLatch loaded = new CountDownLatch(1);
+    Future<String> task = executor.submit(() -> {
+      if (!started.compareAndSet(false, true)) return null;
+      try {
+        try {
+          loadNanos.set(load(lang));
+        } finally {
+          loaded.countDown();
+        }
+        return delegate.toSingular(label, full, lang);
+      } finally {
+        free.release();
+      }
+    });
+
+    try {
+      // the loading is out of the budget: wait for it as long as it takes
+      if (!loaded.await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS) && started.get())
+        loaded.await();
+      deadline += loadNanos.get();
+      return task.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      abandon(task, started);
+      stats.count(RunStats.Event.SINGULARISATION_TIMEOUT);
+      return null;
+    } catch (InterruptedException e) {
+      abandon(task, started);
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  /**
+   * Load what is needed for the given language on the current worker, once
+   * @return the loading time, 0 if already loaded
+   */
+  private long load(String lang) {
+    String key = String.valueOf(Singulariser.primaryLang(lang));
+    if (prepared.get().contains(key)) return 0;
+    long start = System.nanoTime();
+    delegate.prepare(lang);
+    long elapsed = System.nanoTime() - start;
+    stats.record(RunStats.Stage.LOAD, elapsed);
+    prepared.get().add(key);
+    return elapsed;
+  }
+
+  private void abandon(Future<String> task, AtomicBoolean started) {
+    if (started.compareAndSet(false, true)) free.release();
+    else task.cancel(true);
+  }
+}
@@ -0,0 +1,134 @@
+package org.doremus.string2vocabulary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Negative pre-check for the labels searched in a family of vocabularies.
+ * It relies on two Bloom filters:
+ * - one on all the lookup keys (with and without language tag, with and without brackets),
+ *   which rules out the labels that cannot match before probing the vocabularies;
+ * - one on the words of the keys and on their first two letters,
+ *   which rules out the singularisation of the labels that cannot have a singular form in the vocabularies.
+ * The latter assumes that singularising a word keeps its first two letters, as for regular plurals.
+ */
+public class LabelFilter {
+  private static final double FPP = 0.01;
+  private static final int STEM_LENGTH = 2;
+
+  private final BloomFilter keys;
+  private final BloomFilter tokens;
+
+  private final LongAdder checks = new LongAdder();
+  private final LongAdder negatives = new LongAdder();
+  private final LongAdder falsePositives = new LongAdder();
+  private final LongAdder skippedSingularisations = new LongAdder();
+
+  private LabelFilter(List<String> keyList) {
+    keys = new BloomFilter(keyList.size(), FPP);
+    tokens = new BloomFilter(keyList.size() * 2, FPP);
+
+    for (String key : keyList) {
+      key = key.toLowerCase();
+      keys.add(key);
+      for (String token : Vocabulary.stripLang(key).split(" ")) {
+        tokens.add(token);
+        tokens.add(stem(token));
+      }
+    }
+  }
+
+  /**
+   * Build the filter for a family
+   * @return the filter, or null if some vocabulary does not support it (e.g. MODS)
+   */
+  public static LabelFilter build(List<Vocabulary> vocabularies) {
+    List<String> keyList = new ArrayList<>();
+    for (Vocabulary v : vocabularies)
+      if (!v.forEachKey(keyList::add)) return null;
+    return new LabelFilter(keyList);
+  }
+
+  /**
+   * Check if the label might be found in the family
+   * @param langLabel The normalised label with language tag (if any)
+   * @param label The normalised label without language tag
+   * @return false if the label is definitely not in any of the vocabularies
+   */
+  public boolean mightContain(String langLabel, String label) {
+    checks.increment();
+    // same transformations as the lookup: strip the lang tag first, then lowercase
+    boolean maybe = keys.mightContain(langLabel.toLowerCase())
+      || keys.mightContain(Vocabulary.stripLang(langLabel).toLowerCase())
+      || keys.mightContain(Vocabulary.stripLang(label).toLowerCase());
+    if (!maybe) negatives.increment();
+    return maybe;
+  }
+
+  /**
+   * Record the result of a search that passed the filter, for computing the false positives
+   */
+  public void record(boolean found) {
+    if (!found) falsePositives.increment();
+  }
+
+  /**
+   * Check if a singular form of the label might be found in the family
+   * @param label The normalised label without language tag
+   * @param full If the whole string is going to be singularised, or only the first word
+   */
+  public boolean mayHaveSingular(String label, boolean full) {
+    String[] parts = label.split(" ");
+    boolean maybe = true;
+    for (int i = 0; i < parts.length && maybe; i++) {
+      if (i == 0 || full) maybe = tokens.mightContain(stem(parts[i]));
+      else maybe = tokens.mightContain(parts[i]); // the following words are not singularised
+    }
+    if (!maybe) skippedSingularisations.increment();
+    return maybe;
+  }
+
+  private static String stem(String token) {
+    return token.length() > STEM_LENGTH ? token.substring(0, STEM_LENGTH) : token;
+  }
+
+  public long getChecks() {
+    return checks.sum();
+  }
+
+  public long getNegatives() {
+    return negatives.sum();
+  }
+
+  public long getFalsePositives() {
+    return falsePositives.sum();
+  }
+
+  public long getSkippedSingularisations() {
+    return skippedSingularisations.sum();
+  }
+
+  /**
+   * Observed false positive rate, i.e. the share of the absent labels that passed the filter
+   */
+  public double getFalsePositiveRate() {
+    long fp = getFalsePositives();
+    long absent = fp + getNegatives();
+    return absent == 0 ? 0 : (double) fp / absent;
+  }
+
+  /**
+   * False positive probability expected from the fill ratio of the keys filter
+   */
+  public double getExpectedFalsePositiveRate() {
+    return keys.expectedFpp();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("checks=%d, negatives=%d, false positives=%d (%.4f, expected %.4f), skipped singularisations=%d",
+      getChecks(), getNegatives(), getFalsePositives(), getFalsePositiveRate(), getExpectedFalsePositiveRate(),
+      getSkippedSingularisations());
+  }
+}
@@ -0,0 +1,98 @@
+package org.doremus.string2vocabulary;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Pool of CoreNLP lemmatisers keyed by language.
+ * Pipelines are loaded lazily on first use, and each thread gets its own instance.
+ * The language only selects the tokenisation, see StanfordLemmatizer.
+ */
+public class LemmatizerPool implements Singulariser {
+  private final Map<String, ThreadLocal<StanfordLemmatizer>> pool = new ConcurrentHashMap<>();
+  private final Map<String, Boolean> unsupported = new ConcurrentHashMap<>();
+  private final Set<String> loaded = ConcurrentHashMap.newKeySet();
+  private volatile String defaultLang;
+
+  public LemmatizerPool(String defaultLang) {
+    setDefaultLang(defaultLang);
+  }
+
+  public String getDefaultLang() {
+    return defaultLang;
+  }
+
+  /**
+   * Get the languages having a pipeline loaded, on any thread
+   */
+  public Set<String> getLoadedLangs() {
+    return Collections.unmodifiableSet(loaded);
+  }
+
+  /**
+   * Setter for the language used for the untagged literals
+   */
+  public void setDefaultLang(String defaultLang) {
+    this.defaultLang = defaultLang == null || defaultLang.isEmpty() ? "en" : defaultLang;
+  }
+
+  /**
+   * Lemmatise a text with the pipeline of the given language.
+   * Falls back to the default language when lang is null or when no pipeline can be loaded for it.
+   */
+  public List<String> lemmatize(String text, String lang) {
+    return get(lang).lemmatize(text);
+  }
+
+  @Override
+  public void prepare(String lang) {
+    get(lang);
+  }
+
+  @Override
+  public String toSingular(String label, boolean full, String lang) {
+    if (label == null || label.isEmpty()) return "";
+    StanfordLemmatizer slem = get(lang);
+    if (full)
+      return slem.lemmatize(label).stream()
+              .collect(Collectors.joining(" "));
+
+    // cornets à pistons --> cornet à pistons
+    String[] parts = label.split(" ");
+    // no lemma for an empty first word, e.g. with a leading space
+    List<String> lemmas = slem.lemmatize(parts[0]);
+    if (!lemmas.isEmpty()) parts[0] = lemmas.get(0);
+    return String.join(" ", parts);
+  }
+
+  /**
+   * Get the lemmatiser of the current thread for the given language, loading it if needed
+   */
+  public StanfordLemmatizer get(String lang) {
+    lang = Singulariser.primaryLang(lang);
+    if (lang == null || lang.isEmpty() || unsupported.containsKey(lang)) lang = defaultLang;
+
+    final String pipelineLang = lang;
+    ThreadLocal<StanfordLemmatizer> local =
+      pool.computeIfAbsent(pipelineLang, l -> ThreadLocal.withInitial(() -> {
+        StanfordLemmatizer slem = new StanfordLemmatizer(l);
+        if (loaded.add(l) && !"en".equals(l))
+          System.out.println("Lemmatiser '" + l + "': tokenisation in '" + l + "', POS tagging and lemmatisation in English");  // TODO: use logging facilities
+        return slem;
+      }));
+
+    try {
+      return local.get();
+    } catch (RuntimeException e) {
+      if (pipelineLang.equals(defaultLang)) throw e;
+      System.out.println("No lemmatiser available for language '" + pipelineLang + "', using '" + defaultLang + "'");  // TODO: use logging facilities
+      unsupported.put(pipelineLang, true);
+      pool.remove(pipelineLang);
+      return get(defaultLang);
+    }
+  }
+}
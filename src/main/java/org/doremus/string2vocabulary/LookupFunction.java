@@ -0,0 +1,56 @@
+package org.doremus.string2vocabulary;
+
+import org.apache.jena.atlas.lib.Lib;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.QueryBuildException;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.expr.Expr;
+import org.apache.jena.sparql.expr.ExprEvalException;
+import org.apache.jena.sparql.expr.ExprList;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.apache.jena.sparql.function.FunctionBase;
+import org.apache.jena.sparql.function.FunctionEnv;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * SPARQL function s2v:lookup(?label, family [, singularise]), see *SPARQLFunctions*.
+ * The result is unbound when the label does not match.
+ */
+public class LookupFunction extends FunctionBase {
+
+  @Override
+  public void checkBuild(String uri, ExprList args) {
+    if (args.size() < 2 || args.size() > 3)
+      throw new QueryBuildException("Function '" + Lib.className(this) + "' takes two or three arguments");
+  }
+
+  @Override
+  public NodeValue exec(Binding binding, ExprList args, String uri, FunctionEnv env) {
+    List<NodeValue> values = new ArrayList<>();
+    for (Expr arg : args) values.add(arg.eval(binding, env));
+    return exec(values, SPARQLFunctions.cacheOf(env.getContext()));
+  }
+
+  @Override
+  public NodeValue exec(List<NodeValue> args) {
+    return exec(args, new HashMap<>());
+  }
+
+  private NodeValue exec(List<NodeValue> args, Map<String, Optional<Node>> cache) {
+    String family = args.get(1).asString();
+    boolean singularise = args.size() > 2 && toBoolean(args.get(2));
+
+    Node concept = SPARQLFunctions.lookup(cache, args.get(0).asNode(), family, singularise);
+    if (concept == null) throw new ExprEvalException("No match for " + args.get(0));
+    return NodeValue.makeNode(concept);
+  }
+
+  static boolean toBoolean(NodeValue value) {
+    return value.isBoolean() ? value.getBoolean() : Boolean.parseBoolean(value.asString());
+  }
+}
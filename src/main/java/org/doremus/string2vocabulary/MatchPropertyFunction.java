@@ -0,0 +1,53 @@
+package org.doremus.string2vocabulary;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.QueryBuildException;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.expr.ExprEvalException;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.apache.jena.sparql.pfunction.PFuncSimpleAndList;
+import org.apache.jena.sparql.pfunction.PropFuncArg;
+import org.apache.jena.sparql.util.IterLib;
+
+import java.util.List;
+
+/**
+ * SPARQL property function ?concept s2v:match (?label family [singularise]), see *SPARQLFunctions*.
+ * It binds ?concept to the matching concept, or checks it if already bound.
+ */
+public class MatchPropertyFunction extends PFuncSimpleAndList {
+
+  @Override
+  public void build(PropFuncArg argSubject, Node predicate, PropFuncArg argObject, ExecutionContext execCxt) {
+    super.build(argSubject, predicate, argObject, execCxt);
+    int size = argObject.getArgListSize();
+    if (size < 2 || size > 3)
+      throw new QueryBuildException("Property function '" + predicate + "' takes a list of two or three elements");
+  }
+
+  @Override
+  public QueryIterator execEvaluated(Binding binding, Node subject, Node predicate, PropFuncArg object, ExecutionContext execCxt) {
+    List<Node> args = object.getArgList();
+    Node label = args.get(0), family = args.get(1);
+    // unbound label or family
+    if (!label.isLiteral() || !family.isLiteral()) return IterLib.noResults(execCxt);
+
+    boolean singularise = args.size() > 2 && args.get(2).isLiteral()
+      && LookupFunction.toBoolean(NodeValue.makeNode(args.get(2)));
+
+    Node concept;
+    try {
+      concept = SPARQLFunctions.lookup(SPARQLFunctions.cacheOf(execCxt.getContext()),
+        label, family.getLiteralLexicalForm(), singularise);
+    } catch (ExprEvalException e) {
+      return IterLib.noResults(execCxt);
+    }
+    if (concept == null) return IterLib.noResults(execCxt);
+
+    if (Var.isVar(subject)) return IterLib.oneResult(binding, Var.alloc(subject), concept, execCxt);
+    return concept.equals(subject) ? IterLib.result(binding, execCxt) : IterLib.noResults(execCxt);
+  }
+}
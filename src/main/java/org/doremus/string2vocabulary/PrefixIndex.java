@@ -0,0 +1,92 @@
+package org.doremus.string2vocabulary;
+
+import org.apache.jena.rdf.model.Resource;
+
+import java.util.*;
+
+/**
+ * Prefix index on the labels of a family of vocabularies, for as-you-type suggestions.
+ * The labels are split in tiers, by vocabulary priority (see *Vocabulary.compareTo*) and then
+ * prefLabel before altLabel. Each tier is a sorted array of normalised labels, so that a completion
+ * is a binary search followed by a scan that stops as soon as k concepts are found.
+ */
+public class PrefixIndex {
+  private final List<Tier> tiers = new ArrayList<>();
+
+  /**
+   * @param vocabularies The vocabularies of the family, sorted by priority
+   */
+  public PrefixIndex(List<Vocabulary> vocabularies) {
+    for (Vocabulary v : vocabularies) {
+      List<Entry> prefLabels = new ArrayList<>(), altLabels = new ArrayList<>();
+      boolean indexed = v.forEachLabel((label, lang, concept, pref) ->
+        (pref ? prefLabels : altLabels).add(new Entry(label, lang, concept)));
+      if (!indexed) continue;
+      tiers.add(new Tier(prefLabels));
+      tiers.add(new Tier(altLabels));
+    }
+  }
+
+  /**
+   * Get the top-k concepts having a label starting with the given prefix
+   * @param prefix The beginning of the label, normalised as the labels
+   * @param k Maximum number of results
+   * @param lang Language of the labels, null for any language
+   * @return the concepts, by vocabulary priority, then prefLabel before altLabel, then label
+   */
+  public List<Resource> complete(String prefix, int k, String lang) {
+    Set<Resource> results = new LinkedHashSet<>();
+    for (Tier tier : tiers) {
+      if (results.size() >= k) break;
+      tier.complete(prefix, k, lang, results);
+    }
+    return new ArrayList<>(results);
+  }
+
+  private static class Entry {
+    final String label;
+    final String lang;
+    final Resource concept;
+
+    Entry(String label, String lang, Resource concept) {
+      this.label = label;
+      this.lang = lang;
+      this.concept = concept;
+    }
+  }
+
+  private static class Tier {
+    private final String[] labels;
+    private final String[] langs;
+    private final Resource[] concepts;
+
+    Tier(List<Entry> entries) {
+      entries.sort(Comparator.comparing(e -> e.label));
+      labels = new String[entries.size()];
+      langs = new String[entries.size()];
+      concepts = new Resource[entries.size()];
+      for (int i = 0; i < labels.length; i++) {
+        Entry e = entries.get(i);
+        labels[i] = e.label;
+        langs[i] = e.lang;
+        concepts[i] = e.concept;
+      }
+    }
+
+    void complete(String prefix, int k, String lang, Set<Resource> results) {
+      int i = Arrays.binarySearch(labels, prefix);
+      if (i < 0) i = -i - 1;
+      // the first label equal to the prefix
+      while (i > 0 && labels[i - 1].equals(prefix)) i--;
+
+      for (; i < labels.length && results.size() < k && labels[i].startsWith(prefix); i++)
+        if (lang == null || matchLang(langs[i], lang)) results.add(concepts[i]);
+    }
+
+    // fr matches fr, fr-ca and FR
+    private static boolean matchLang(String labelLang, String lang) {
+      return labelLang.regionMatches(true, 0, lang, 0, lang.length())
+        && (labelLang.length() == lang.length() || labelLang.charAt(lang.length()) == '-');
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package org.doremus.string2vocabulary;
+
+/**
+ * Fast singulariser based on the regular plural endings of French, English and Italian.
+ * It works on the normalised labels (lowercase, ASCII), and it produces a candidate
+ * which is meant to be checked against the vocabularies.
+ * Words shorter than 4 characters are left untouched (articles, prepositions, ...).
+ * In the languages it handles, a label without plural endings is returned as it is, i.e. as singular,
+ * so that the slower singularisers are not run on it.
+ */
+public class RuleBasedSingulariser implements Singulariser {
+  private static final int MIN_LENGTH = 4;
+
+  @Override
+  public String toSingular(String label, boolean full, String lang) {
+    if (label == null || label.isEmpty()) return null;
+    lang = Singulariser.primaryLang(lang);
+    if (!"fr".equals(lang) && !"en".equals(lang) && !"it".equals(lang)) return null;
+
+    StringBuilder sb = new StringBuilder(label.length() + 2);
+    boolean changed = false;
+    int start = 0;
+    while (start <= label.length()) {
+      int end = label.indexOf(' ', start);
+      if (end < 0) end = label.length();
+
+      if (full || start == 0) changed |= appendSingular(sb, label, start, end, lang);
+      else sb.append(label, start, end);
+
+      if (end < label.length()) sb.append(' ');
+      start = end + 1;
+    }
+    return changed ? sb.toString() : label;
+  }
+
+  /**
+   * Append the singular of the word between start and end
+   * @return true if the word has been modified
+   */
+  private static boolean appendSingular(StringBuilder sb, String s, int start, int end, String lang) {
+    if (end - start >= MIN_LENGTH) {
+      switch (lang) {
+        case "fr":
+          // chalumeaux --> chalumeau, jeux --> jeu
+          if (endsWith(s, end, "eaux") || endsWith(s, end, "eux"))
+            return replaceEnd(sb, s, start, end, 1, "");
+          // chevaux --> cheval
+          if (endsWith(s, end, "aux"))
+            return replaceEnd(sb, s, start, end, 2, "l");
+          // violons --> violon
+          if (!endsWith(s, end, "ss") && (endsWith(s, end, "s") || endsWith(s, end, "x")))
+            return replaceEnd(sb, s, start, end, 1, "");
+          break;
+        case "en":
+          // harmonies --> harmony
+          if (endsWith(s, end, "ies"))
+            return replaceEnd(sb, s, start, end, 3, "y");
+          // basses --> bass, bunches --> bunch
+          if (endsWith(s, end, "sses") || endsWith(s, end, "shes") || endsWith(s, end, "ches")
+            || endsWith(s, end, "xes") || endsWith(s, end, "zes"))
+            return replaceEnd(sb, s, start, end, 2, "");
+          // bass, chorus, timpanis
+          if (endsWith(s, end, "ss") || endsWith(s, end, "us") || endsWith(s, end, "is"))
+            break;
+          // women --> woman
+          if (endsWith(s, end, "men"))
+            return replaceEnd(sb, s, start, end, 2, "an");
+          // violins --> violin
+          if (endsWith(s, end, "s"))
+            return replaceEnd(sb, s, start, end, 1, "");
+          break;
+        case "it":
+          // fiaschi --> fiasco
+          if (endsWith(s, end, "chi") || endsWith(s, end, "ghi"))
+            return replaceEnd(sb, s, start, end, 2, "o");
+          // violini --> violino
+          if (endsWith(s, end, "i"))
+            return replaceEnd(sb, s, start, end, 1, "o");
+          // trombe --> tromba
+          if (endsWith(s, end, "e"))
+            return replaceEnd(sb, s, start, end, 1, "a");
+          break;
+      }
+    }
+    sb.append(s, start, end);
+    return false;
+  }
+
+  private static boolean endsWith(String s, int end, String suffix) {
+    return s.regionMatches(end - suffix.length(), suffix, 0, suffix.length());
+  }
+
+  private static boolean replaceEnd(StringBuilder sb, String s, int start, int end, int cut, String add) {
+    sb.append(s, start, end - cut).append(add);
+    return true;
+  }
+}
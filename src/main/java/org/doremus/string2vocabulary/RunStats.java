@@ -0,0 +1,138 @@
+package org.doremus.string2vocabulary;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time spent in each stage of the matching process, and count of notable events.
+ * Stages are nested: SINGULARISE is part of LOOKUP, LOAD is part of SINGULARISE.
+ * Besides the total, the latency distribution of each stage is kept in a histogram
+ * with 8 buckets per power of 2 (about 9% of resolution), for the percentiles.
+ */
+public class RunStats {
+  public enum Stage {
+    /** Querying the model for the labels of the mapped properties */
+    QUERY,
+    /** Searching the labels in the vocabularies */
+    LOOKUP,
+    /** Computing the singular forms of the labels */
+    SINGULARISE,
+    /** Loading the singularisation pipelines, part of SINGULARISE but out of its budget */
+    LOAD,
+    /** Replacing the matched labels in the model */
+    APPLY
+  }
+
+  public enum Event {
+    /** A label too long to be singularised */
+    SINGULARISATION_SKIPPED,
+    /** A singularisation cancelled for exceeding the time budget */
+    SINGULARISATION_TIMEOUT,
+    /** A label not singularised for lack of a free worker within the time budget */
+    SINGULARISATION_QUEUED_OUT
+  }
+
+  private final LongAdder[] nanos = new LongAdder[Stage.values().length];
+  private final LongAdder[] calls = new LongAdder[Stage.values().length];
+  private final LongAdder[] events = new LongAdder[Event.values().length];
+  private static final int SUB_BUCKETS = 8;
+  private final AtomicLongArray[] histograms = new AtomicLongArray[Stage.values().length];
+  private final LongAccumulator[] max = new LongAccumulator[Stage.values().length];
+
+  public RunStats() {
+    for (int i = 0; i < nanos.length; i++) {
+      nanos[i] = new LongAdder();
+      calls[i] = new LongAdder();
+      histograms[i] = new AtomicLongArray(64 * SUB_BUCKETS);
+      max[i] = new LongAccumulator(Math::max, 0);
+    }
+    for (int i = 0; i < events.length; i++)
+      events[i] = new LongAdder();
+  }
+
+  public void record(Stage stage, long elapsedNanos) {
+    nanos[stage.ordinal()].add(elapsedNanos);
+    calls[stage.ordinal()].increment();
+    histograms[stage.ordinal()].incrementAndGet(bucketOf(elapsedNanos));
+    max[stage.ordinal()].accumulate(elapsedNanos);
+  }
+
+  public long getNanos(Stage stage) {
+    return nanos[stage.ordinal()].sum();
+  }
+
+  public long getCalls(Stage stage) {
+    return calls[stage.ordinal()].sum();
+  }
+
+  public long getMaxNanos(Stage stage) {
+    return max[stage.ordinal()].get();
+  }
+
+  /**
+   * Get a latency percentile of a stage, rounded up to the histogram resolution
+   * @param percentile Between 0 and 1, e.g. 0.99
+   */
+  public long getPercentileNanos(Stage stage, double percentile) {
+    AtomicLongArray histogram = histograms[stage.ordinal()];
+    long total = 0;
+    for (int i = 0; i < histogram.length(); i++) total += histogram.get(i);
+    if (total == 0) return 0;
+
+    long rank = Math.max(1, (long) Math.ceil(percentile * total));
+    long seen = 0;
+    for (int i = 0; i < histogram.length(); i++) {
+      seen += histogram.get(i);
+      if (seen >= rank) return Math.min(lowerBound(i + 1) - 1, getMaxNanos(stage));
+    }
+    return getMaxNanos(stage);
+  }
+
+  // 0..15 ns have their own bucket, then 8 buckets per power of 2
+  private static int bucketOf(long nanos) {
+    if (nanos < 2 * SUB_BUCKETS) return (int) Math.max(0, nanos);
+    int exp = 63 - Long.numberOfLeadingZeros(nanos);
+    int sub = (int) (nanos >>> (exp - 3)) & (SUB_BUCKETS - 1);
+    return (exp - 2) * SUB_BUCKETS + sub;
+  }
+
+  private static long lowerBound(int bucket) {
+    if (bucket < 2 * SUB_BUCKETS) return bucket;
+    int exp = bucket / SUB_BUCKETS + 2;
+    if (exp > 62) return Long.MAX_VALUE;
+    return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exp - 3);
+  }
+
+  public void count(Event event) {
+    events[event.ordinal()].increment();
+  }
+
+  public long getCount(Event event) {
+    return events[event.ordinal()].sum();
+  }
+
+  public void reset() {
+    for (int i = 0; i < nanos.length; i++) {
+      nanos[i].reset();
+      calls[i].reset();
+      for (int b = 0; b < histograms[i].length(); b++) histograms[i].set(b, 0);
+      max[i].reset();
+    }
+    for (LongAdder event : events) event.reset();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (Stage stage : Stage.values()) {
+      long n = getCalls(stage);
+      sb.append(String.format("%s: %d calls, %.1f ms, %.2f us/call, p99 %.1f us, max %.1f us%n", stage, n,
+        getNanos(stage) / 1e6, n == 0 ? 0 : getNanos(stage) / 1e3 / n,
+        getPercentileNanos(stage, 0.99) / 1e3, getMaxNanos(stage) / 1e3));
+    }
+    for (Event event : Event.values())
+      sb.append(String.format("%s: %d%n", event, getCount(event)));
+    return sb.toString();
+  }
+}
@@ -5,14 +5,27 @@ import org.apache.jena.vocabulary.RDF;
 import org.apache.jena.vocabulary.SKOS;
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class SKOSVocabulary extends Vocabulary {
+  // below this number of concepts, the labels are normalised sequentially
+  private static final int PARALLEL_THRESHOLD = 1000;
+
   private final Map<String, Resource> substitutionMap;
   private final Map<String, Resource> substitutionMapNoBrackets;
   private final Map<String, Resource> substitutionMapPlain;
   private final Map<String, Resource> substitutionMapPlainNoBrackets;
 
   public SKOSVocabulary(String name, Model model) {
+    this(name, model, PARALLEL_THRESHOLD);
+  }
+
+  /**
+   * @param parallelThreshold Minimum number of concepts for normalising the labels in parallel
+   */
+  SKOSVocabulary(String name, Model model, int parallelThreshold) {
     super(name, model);
 
     setSchemePathFromType(SKOS.ConceptScheme);
@@ -24,62 +37,81 @@ public class SKOSVocabulary extends Vocabulary {
     substitutionMapPlainNoBrackets = new HashMap<>();
 
     // for each concept
-    StmtIterator conceptIter =
-      vocabulary.listStatements(new SimpleSelector(null, RDF.type, SKOS.Concept));
+    List<Resource> concepts = new ArrayList<>();
+    vocabulary.listStatements(new SimpleSelector(null, RDF.type, SKOS.Concept))
+      .forEachRemaining(st -> concepts.add(st.getSubject()));
 
-    if (!conceptIter.hasNext()) {
+    if (concepts.isEmpty()) {
       System.out.println("SKOSVocabulary constructor | Warning: No concepts in the reference rdf at " + name);
       return;
     }
 
-    while (conceptIter.hasNext())
-      processConcept(conceptIter.nextStatement().getSubject());
+    // the concepts with narrower ones lose the label conflicts
+    Set<Resource> withNarrower = vocabulary.listSubjectsWithProperty(SKOS.narrower).toSet();
+
+    // read and normalise the labels in parallel, then index them in the original order,
+    // so that the conflicts are resolved as in a sequential run
+    Stream<Resource> conceptStream = concepts.size() < parallelThreshold ? concepts.stream() : concepts.parallelStream();
+    List<ConceptLabels> labels = conceptStream.map(ConceptLabels::new).collect(Collectors.toList());
+    for (ConceptLabels conceptLabels : labels)
+      processConcept(conceptLabels, withNarrower);
   }
 
-  private void processConcept(Resource resource) {
-    // get the labels
-    StmtIterator labelIterator = resource.listProperties(SKOS.prefLabel);
-    //for each label
-    while (labelIterator.hasNext()) {
-      Literal nx = labelIterator.nextStatement().getLiteral();
-      String value = norm(nx.getLexicalForm());
-      String valueNb = normNb(nx.getLexicalForm());
+  /**
+   * The normalised labels of a concept
+   */
+  private static class ConceptLabels {
+    private final Resource resource;
+    private final List<String[]> prefLabels;
+    private final List<String[]> altLabels;
+
+    ConceptLabels(Resource resource) {
+      this.resource = resource;
+      this.prefLabels = normLabels(resource, SKOS.prefLabel);
+      this.altLabels = normLabels(resource, SKOS.altLabel);
+    }
 
-      // add the value or - if already there - keep the best one
-      putKeepBest(value, resource, substitutionMapPlain);
-      putKeepBest(valueNb, resource, substitutionMapPlainNoBrackets);
-
-      // now, manage the lang tag
-      String lang = nx.getLanguage();
-      if (lang != null && !lang.isEmpty()) {
-        value += "@" + nx.getLanguage();
-        valueNb += "@" + nx.getLanguage();
+    /**
+     * @return for each label: the value, the value without brackets, and the same with the lang tag (if any)
+     */
+    private static List<String[]> normLabels(Resource resource, Property property) {
+      List<String[]> result = new ArrayList<>();
+      StmtIterator labelIterator = resource.listProperties(property);
+      //for each label
+      while (labelIterator.hasNext()) {
+        Literal nx = labelIterator.nextStatement().getLiteral();
+        String value = norm(nx.getLexicalForm());
+        String valueNb = normNb(nx.getLexicalForm());
+        String langValue = value, langValueNb = valueNb;
+
+        // now, manage the lang tag
+        String lang = nx.getLanguage();
+        if (lang != null && !lang.isEmpty()) {
+          langValue += "@" + lang;
+          langValueNb += "@" + lang;
+        }
+        result.add(new String[]{value, valueNb, langValue, langValueNb});
       }
+      return result;
+    }
+  }
 
+  private void processConcept(ConceptLabels labels, Set<Resource> withNarrower) {
+    Resource resource = labels.resource;
+    for (String[] label : labels.prefLabels) {
       // add the value or - if already there - keep the best one
-      putKeepBest(value, resource, substitutionMap);
-      putKeepBest(valueNb, resource, substitutionMapNoBrackets);
+      putKeepBest(label[0], resource, substitutionMapPlain, withNarrower);
+      putKeepBest(label[1], resource, substitutionMapPlainNoBrackets, withNarrower);
+      putKeepBest(label[2], resource, substitutionMap, withNarrower);
+      putKeepBest(label[3], resource, substitutionMapNoBrackets, withNarrower);
     }
 
-    labelIterator = resource.listProperties(SKOS.altLabel);
-    //for each label
-    while (labelIterator.hasNext()) {
-      Literal nx = labelIterator.nextStatement().getLiteral();
-      String value = norm(nx.getLexicalForm());
-      String valueNb = normNb(nx.getLexicalForm());
+    for (String[] label : labels.altLabels) {
       // add the value or - if already there, skip
-      putOrSkip(value, resource, substitutionMapPlain);
-      putOrSkip(valueNb, resource, substitutionMapPlainNoBrackets);
-
-      String lang = nx.getLanguage();
-      if (lang != null && !lang.isEmpty()) {
-        value += "@" + nx.getLanguage();
-        valueNb += "@" + nx.getLanguage();
-      }
-
-      // add the value or - if already there, skip
-      putOrSkip(value, resource, substitutionMap);
-      putOrSkip(valueNb, resource, substitutionMapNoBrackets);
+      putOrSkip(label[0], resource, substitutionMapPlain);
+      putOrSkip(label[1], resource, substitutionMapPlainNoBrackets);
+      putOrSkip(label[2], resource, substitutionMap);
+      putOrSkip(label[3], resource, substitutionMapNoBrackets);
     }
   }
 
@@ -88,11 +120,10 @@ public class SKOSVocabulary extends Vocabulary {
       map.put(value, resource);
   }
 
-  private void putKeepBest(String value, Resource resource, Map<String, Resource> map) {
+  private void putKeepBest(String value, Resource resource, Map<String, Resource> map, Set<Resource> withNarrower) {
     if (map.containsKey(value)) {
       Resource oldRes = map.get(value);
-      Statement narrower = oldRes.getProperty(SKOS.narrower);
-      if (narrower != null) map.put(value, resource);
+      if (withNarrower.contains(oldRes)) map.put(value, resource);
     } else map.put(value, resource);
   }
 
@@ -100,16 +131,39 @@ public class SKOSVocabulary extends Vocabulary {
   @Override
   public Resource findConcept(String text, boolean strict, boolean excludeBrackets) {
     // remove the lang tag if not strict
-    text = strict ? text : text.replaceAll("@[a-z]{2,3}$", "");
+    text = strict ? text : stripLang(text);
 
-    // select the right substitution map
-    Map<String, Resource> map;
+    return substitutionMap(strict, excludeBrackets).get(text.toLowerCase());
+  }
+
+  /**
+   * Select the right substitution map
+   */
+  Map<String, Resource> substitutionMap(boolean strict, boolean excludeBrackets) {
     if (strict)
-      map = excludeBrackets ? substitutionMapNoBrackets : substitutionMap;
-    else
-      map = excludeBrackets ? substitutionMapPlainNoBrackets : substitutionMapPlain;
+      return excludeBrackets ? substitutionMapNoBrackets : substitutionMap;
+    return excludeBrackets ? substitutionMapPlainNoBrackets : substitutionMapPlain;
+  }
 
-    return map.get(text.toLowerCase());
+  @Override
+  public boolean forEachLabel(LabelConsumer consumer) {
+    vocabulary.listStatements(new SimpleSelector(null, RDF.type, SKOS.Concept)).forEachRemaining(st -> {
+      Resource concept = st.getSubject();
+      concept.listProperties(SKOS.prefLabel).forEachRemaining(label ->
+        consumer.accept(norm(label.getLiteral().getLexicalForm()), label.getLiteral().getLanguage(), concept, true));
+      concept.listProperties(SKOS.altLabel).forEachRemaining(label ->
+        consumer.accept(norm(label.getLiteral().getLexicalForm()), label.getLiteral().getLanguage(), concept, false));
+    });
+    return true;
+  }
+
+  @Override
+  public boolean forEachKey(Consumer<String> consumer) {
+    substitutionMap.keySet().forEach(consumer);
+    substitutionMapNoBrackets.keySet().forEach(consumer);
+    substitutionMapPlain.keySet().forEach(consumer);
+    substitutionMapPlainNoBrackets.keySet().forEach(consumer);
+    return true;
   }
 
 }
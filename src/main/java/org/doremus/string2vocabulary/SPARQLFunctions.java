@@ -0,0 +1,82 @@
+package org.doremus.string2vocabulary;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.sparql.expr.ExprEvalException;
+import org.apache.jena.sparql.function.FunctionRegistry;
+import org.apache.jena.sparql.pfunction.PropertyFunctionRegistry;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.sparql.util.Symbol;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * SPARQL extensions resolving literals against the loaded vocabularies, during the query evaluation.
+ *
+ * <pre>
+ * prefix s2v: &lt;http://data.doremus.org/string2vocabulary#&gt;
+ *
+ * # function: unbound if no match
+ * BIND(s2v:lookup(?label, "mop", true) AS ?concept)
+ *
+ * # property function: (label family [singularise])
+ * ?concept s2v:match (?label "mop" true)
+ * </pre>
+ * Results are cached for the duration of each query execution.
+ */
+public final class SPARQLFunctions {
+  public static final String NS = "http://data.doremus.org/string2vocabulary#";
+  public static final String LOOKUP = NS + "lookup";
+  public static final String MATCH = NS + "match";
+
+  private static final Symbol CACHE = Symbol.create(NS + "cache");
+
+  private SPARQLFunctions() {
+  }
+
+  /**
+   * Register the functions in ARQ
+   */
+  public static void register() {
+    FunctionRegistry.get().put(LOOKUP, LookupFunction.class);
+    PropertyFunctionRegistry.get().put(MATCH, MatchPropertyFunction.class);
+  }
+
+  /**
+   * Get the cache of the current query execution
+   */
+  static Map<String, Optional<Node>> cacheOf(Context context) {
+    Map<String, Optional<Node>> cache = context.get(CACHE);
+    if (cache == null) {
+      cache = new HashMap<>();
+      context.set(CACHE, cache);
+    }
+    return cache;
+  }
+
+  /**
+   * Search a literal in a family of vocabularies
+   * @return the matching concept, or null
+   */
+  static Node lookup(Map<String, Optional<Node>> cache, Node label, String family, boolean singularise) {
+    if (!label.isLiteral()) throw new ExprEvalException("Not a literal: " + label);
+    String text = label.getLiteralLexicalForm();
+    String lang = label.getLiteralLanguage();
+
+    String key = family + "|" + singularise + "|" + text + "@" + lang;
+    Optional<Node> cached = cache.get(key);
+    if (cached == null) {
+      Resource concept;
+      try {
+        concept = VocabularyManager.searchInCategory(text, lang.isEmpty() ? null : lang, family, singularise);
+      } catch (RuntimeException e) {
+        throw new ExprEvalException(e.getMessage());
+      }
+      cached = Optional.ofNullable(concept).map(Resource::asNode);
+      cache.put(key, cached);
+    }
+    return cached.orElse(null);
+  }
+}
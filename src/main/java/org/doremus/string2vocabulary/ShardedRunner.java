@@ -0,0 +1,403 @@
+package org.doremus.string2vocabulary;
+
+import org.apache.jena.atlas.io.AWriter;
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.lang.LabelToNode;
+import org.apache.jena.riot.out.NodeFormatter;
+import org.apache.jena.riot.out.NodeFormatterNT;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.apache.jena.riot.system.StreamRDFOps;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.vocabulary.RDFS;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Sharded run mode, for inputs too big for a single JVM.
+ * The N-Triples/N-Quads input is split by subject hash into N shards, each one processed
+ * by a local worker process. Workers only communicate through files in a temporary folder,
+ * and load the vocabularies from a snapshot compiled once in binary RDF.
+ *
+ * A subject is kept in the same shard as:
+ * - the blank nodes it points to (recursively);
+ * - the labelled resources it points to through a mapped property, so that they can be matched.
+ *
+ * Blank node labels are preserved from the input, and each worker sorts its output,
+ * so that the shard outputs can be merged deterministically.
+ */
+public class ShardedRunner {
+  private static final Node P1_IS_IDENTIFIED_BY = NodeFactory.createURI("http://erlangen-crm.org/current/P1_is_identified_by");
+  // lines sorted in memory at once by a worker
+  private static final int CHUNK_LINES = 100000;
+
+  private final Set<Node> mappedProperties;
+  private final Map<Node, Node> parents = new HashMap<>();
+
+  private ShardedRunner(Set<Node> mappedProperties) {
+    this.mappedProperties = mappedProperties;
+  }
+
+  /**
+   * Full run of the patching process on N local worker processes
+   * @param property2family Table file with property-vocabulary mapping
+   * @param vocabularyFolder Folder containing the vocabularies, in a supported RDF syntax
+   * @param input The input file, in N-Triples or N-Quads
+   * @param outputFile Filename for saving the resulting dataset, in the same syntax of the input
+   * @param lang Language to be used for singularising the words, e.g. 'en"
+   * @param shards Number of shards, i.e. of worker processes
+   */
+  public static void run(String property2family,
+                         String vocabularyFolder,
+                         String input,
+                         String outputFile,
+                         String lang,
+                         int shards) throws IOException {
+    Lang syntax = RDFLanguages.filenameToLang(input);
+    if (!Lang.NTRIPLES.equals(syntax) && !Lang.NQUADS.equals(syntax))
+      throw new IllegalArgumentException("Sharded mode supports only N-Triples and N-Quads inputs: " + input);
+
+    Path dir = Files.createTempDirectory("string2vocabulary-shards");
+    String ext = Lang.NQUADS.equals(syntax) ? ".nq" : ".nt";
+
+    // Split
+    System.out.println("Sharding: '" + input + "' into " + shards + " shards in '" + dir + "' ...");  // TODO: use logging facilities
+    List<Path> shardFiles = new ArrayList<>();
+    for (int i = 0; i < shards; i++) shardFiles.add(dir.resolve("shard-" + i + ext));
+    split(property2family, input, shardFiles);
+
+    // Snapshot of the vocabularies in binary RDF, shared by the workers
+    File snapshot = dir.resolve("vocabulary").toFile();
+    VocabularyCompiler.compile(new File(vocabularyFolder), snapshot, Lang.RDFTHRIFT);
+
+    // Process
+    System.out.println("Sharding: starting " + shards + " workers ...");  // TODO: use logging facilities
+    List<Path> outputs = new ArrayList<>();
+    List<Process> workers = new ArrayList<>();
+    for (int i = 0; i < shards; i++) {
+      Path output = dir.resolve("output-" + i + ext);
+      outputs.add(output);
+      workers.add(startWorker(property2family, snapshot.getPath(), shardFiles.get(i), output, lang,
+        dir.resolve("worker-" + i + ".log")));
+    }
+    for (int i = 0; i < shards; i++) {
+      try {
+        int status = workers.get(i).waitFor();
+        if (status != 0) {
+          // the output is incomplete anyway: stop the workers still running
+          workers.forEach(Process::destroy);
+          throw new IOException("Worker " + i + " failed with status " + status + ", see " + dir.resolve("worker-" + i + ".log"));
+        }
+      } catch (InterruptedException e) {
+        workers.forEach(Process::destroy);
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for the workers", e);
+      }
+    }
+
+    // Merge
+    System.out.println("Sharding: merging into '" + outputFile + "' ...");  // TODO: use logging facilities
+    merge(outputs, Paths.get(outputFile));
+
+    for (Path shard : shardFiles) Files.deleteIfExists(shard);
+    for (Path output : outputs) Files.deleteIfExists(output);
+    for (int i = 0; i < shards; i++) Files.deleteIfExists(dir.resolve("worker-" + i + ".log"));
+    for (File file : Objects.requireNonNull(snapshot.listFiles())) Files.deleteIfExists(file.toPath());
+    Files.deleteIfExists(snapshot.toPath());
+    Files.deleteIfExists(dir);
+    System.out.println("Sharding: done.");  // TODO: use logging facilities
+  }
+
+  /**
+   * Worker side of the sharded mode: process a shard and write it sorted
+   */
+  public static void worker(String property2family,
+                            String vocabularyFolder,
+                            String input,
+                            String outputFile,
+                            String lang) throws IOException {
+    Dataset dataset = DatasetFactory.create();
+    RDFParser.source(input).labelToNode(LabelToNode.createUseLabelAsGiven()).parse(dataset);
+
+    VocabularyManager.setVocabularyFolder(vocabularyFolder);
+    VocabularyManager.setLazyLoading(true);
+    VocabularyManager.setLang(lang);
+    VocabularyManager.init(property2family);
+
+    VocabularyManager.string2uri(dataset.getDefaultModel());
+    VocabularyManager.string2uri(dataset, null);
+
+    // write unsorted next to the output, then sort by chunks
+    Lang syntax = RDFLanguages.filenameToLang(input);
+    Path output = Paths.get(outputFile).toAbsolutePath();
+    Path unsorted = Files.createTempFile(output.getParent(), "unsorted", ".tmp");
+    try {
+      try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(unsorted))) {
+        StreamRDF writer = new LineWriter(out);
+        writer.start();
+        if (Lang.NQUADS.equals(syntax))
+          StreamRDFOps.sendQuadsToStream(dataset.asDatasetGraph(), writer);
+        else
+          StreamRDFOps.sendTriplesToStream(dataset.getDefaultModel().getGraph(), writer);
+        writer.finish();
+      }
+      sort(unsorted, output, CHUNK_LINES);
+    } finally {
+      Files.deleteIfExists(unsorted);
+    }
+  }
+
+  private static Process startWorker(String property2family, String vocabularyFolder,
+                                     Path input, Path output, String lang, Path log) throws IOException {
+    List<String> command = new ArrayList<>();
+    command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+    // forward the heap settings
+    for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments())
+      if (arg.startsWith("-Xmx") || arg.startsWith("-Xms")) command.add(arg);
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(VocabularyManager.class.getName());
+    command.addAll(Arrays.asList("--worker",
+      "--map", property2family,
+      "--vocabularies", vocabularyFolder,
+      "--input", input.toString(),
+      "--output", output.toString()));
+    if (lang != null) command.addAll(Arrays.asList("--lang", lang));
+
+    return new ProcessBuilder(command)
+      .redirectErrorStream(true)
+      .redirectOutput(log.toFile())
+      .start();
+  }
+
+  // === Split ================================================================
+
+  /**
+   * Split the input by subject in the given shard files, in the same syntax of the input
+   * @param property2family Table file with property-vocabulary mapping
+   */
+  static void split(String property2family, String input, List<Path> shardFiles) throws IOException {
+    Set<Node> mapped = VocabularyManager.getMapFromCSV(Paths.get(property2family)).keySet().stream()
+      .map(Property::asNode)
+      .collect(Collectors.toSet());
+    new ShardedRunner(mapped).split(input, shardFiles);
+  }
+
+  private void split(String input, List<Path> shardFiles) throws IOException {
+    // first pass: group the subjects with their blank nodes and labelled objects
+    Set<Node> labelled = new HashSet<>();
+    List<Node[]> mappedLinks = new ArrayList<>();
+    parse(input, new StreamRDFBase() {
+      @Override
+      public void triple(Triple triple) {
+        collect(triple.getSubject(), triple.getPredicate(), triple.getObject());
+      }
+
+      @Override
+      public void quad(Quad quad) {
+        collect(quad.getSubject(), quad.getPredicate(), quad.getObject());
+      }
+
+      private void collect(Node s, Node p, Node o) {
+        if (o.isBlank()) union(s, o);
+        else if (o.isURI() && mappedProperties.contains(p)) mappedLinks.add(new Node[]{s, o});
+        else if (o.isLiteral() && (RDFS.label.asNode().equals(p) || P1_IS_IDENTIFIED_BY.equals(p))) labelled.add(s);
+      }
+    });
+    for (Node[] link : mappedLinks)
+      if (labelled.contains(link[1])) union(link[0], link[1]);
+
+    // second pass: write each statement in the shard of its subject
+    List<OutputStream> outs = new ArrayList<>();
+    List<StreamRDF> writers = new ArrayList<>();
+    try {
+      for (Path file : shardFiles) {
+        OutputStream out = new BufferedOutputStream(Files.newOutputStream(file));
+        outs.add(out);
+        StreamRDF writer = new LineWriter(out);
+        writer.start();
+        writers.add(writer);
+      }
+
+      parse(input, new StreamRDFBase() {
+        @Override
+        public void triple(Triple triple) {
+          writers.get(shardOf(triple.getSubject(), writers.size())).triple(triple);
+        }
+
+        @Override
+        public void quad(Quad quad) {
+          writers.get(shardOf(quad.getSubject(), writers.size())).quad(quad);
+        }
+      });
+
+      writers.forEach(StreamRDF::finish);
+    } finally {
+      for (OutputStream out : outs) out.close();
+    }
+  }
+
+  private static void parse(String input, StreamRDF stream) {
+    RDFParser.source(input).labelToNode(LabelToNode.createUseLabelAsGiven()).parse(stream);
+  }
+
+  private int shardOf(Node subject, int shards) {
+    return Math.floorMod(key(find(subject)).hashCode(), shards);
+  }
+
+  private static String key(Node node) {
+    return node.isBlank() ? "_:" + node.getBlankNodeLabel() : node.toString();
+  }
+
+  private Node find(Node node) {
+    Node root = node;
+    Node parent;
+    while ((parent = parents.get(root)) != null) root = parent;
+    // path compression
+    while (!node.equals(root)) {
+      parent = parents.get(node);
+      parents.put(node, root);
+      node = parent;
+    }
+    return root;
+  }
+
+  private void union(Node a, Node b) {
+    Node ra = find(a), rb = find(b);
+    if (ra.equals(rb)) return;
+    // the smallest key is the root, so that the shard does not depend on the parsing order
+    if (key(ra).compareTo(key(rb)) < 0) parents.put(rb, ra);
+    else parents.put(ra, rb);
+  }
+
+  /**
+   * N-Triples/N-Quads writer keeping the blank node labels as they are, when valid in these syntaxes
+   * (the Jena writers encode them, e.g. _:c1 --> _:Bc1)
+   */
+  private static class LineWriter extends StreamRDFBase {
+    private static final Pattern BLANK_LABEL = Pattern.compile("[A-Za-z0-9_]([A-Za-z0-9_.-]*[A-Za-z0-9_-])?");
+    private final AWriter out;
+    private final NodeFormatter formatter = new NodeFormatterNT() {
+      @Override
+      public void formatBNode(AWriter w, String label) {
+        if (!BLANK_LABEL.matcher(label).matches()) {
+          super.formatBNode(w, label);
+          return;
+        }
+        w.print("_:");
+        w.print(label);
+      }
+    };
+
+    LineWriter(OutputStream out) {
+      this.out = IO.wrapUTF8(out);
+    }
+
+    @Override
+    public void triple(Triple triple) {
+      write(triple.getSubject(), triple.getPredicate(), triple.getObject(), null);
+    }
+
+    @Override
+    public void quad(Quad quad) {
+      write(quad.getSubject(), quad.getPredicate(), quad.getObject(), quad.isDefaultGraph() ? null : quad.getGraph());
+    }
+
+    private void write(Node s, Node p, Node o, Node g) {
+      formatter.format(out, s);
+      out.print(" ");
+      formatter.format(out, p);
+      out.print(" ");
+      formatter.format(out, o);
+      if (g != null) {
+        out.print(" ");
+        formatter.format(out, g);
+      }
+      out.print(" .\n");
+    }
+
+    @Override
+    public void finish() {
+      out.flush();
+    }
+  }
+
+  // === Sort =================================================================
+
+  /**
+   * External sort of the lines of a file: chunks of at most chunkLines lines are sorted in memory,
+   * written next to the output file, then merged
+   */
+  static void sort(Path inputFile, Path outputFile, int chunkLines) throws IOException {
+    Path dir = outputFile.toAbsolutePath().getParent();
+    List<Path> chunks = new ArrayList<>();
+    try {
+      try (BufferedReader reader = Files.newBufferedReader(inputFile, StandardCharsets.UTF_8)) {
+        List<String> lines = new ArrayList<>();
+        String line;
+        do {
+          line = reader.readLine();
+          if (line != null && !line.isEmpty()) lines.add(line);
+          if (lines.size() >= chunkLines || (line == null && !lines.isEmpty())) {
+            Collections.sort(lines);
+            Path chunk = Files.createTempFile(dir, "chunk", ".tmp");
+            chunks.add(chunk);
+            try (Writer out = Files.newBufferedWriter(chunk, StandardCharsets.UTF_8)) {
+              for (String l : lines) out.write(l + "\n");
+            }
+            lines.clear();
+          }
+        } while (line != null);
+      }
+      merge(chunks, outputFile);
+    } finally {
+      for (Path chunk : chunks) Files.deleteIfExists(chunk);
+    }
+  }
+
+  // === Merge ================================================================
+
+  /**
+   * K-way merge of sorted files, dropping the duplicate lines
+   */
+  static void merge(List<Path> sortedFiles, Path outputFile) throws IOException {
+    List<BufferedReader> readers = new ArrayList<>();
+    try (Writer out = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8)) {
+      PriorityQueue<Map.Entry<String, BufferedReader>> queue = new PriorityQueue<>(Map.Entry.comparingByKey());
+      for (Path file : sortedFiles) {
+        BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        readers.add(reader);
+        String line = reader.readLine();
+        if (line != null) queue.add(new AbstractMap.SimpleEntry<>(line, reader));
+      }
+
+      String last = null;
+      while (!queue.isEmpty()) {
+        Map.Entry<String, BufferedReader> head = queue.poll();
+        if (!head.getKey().equals(last)) out.write(head.getKey() + "\n");
+        last = head.getKey();
+        String line = head.getValue().readLine();
+        if (line != null) queue.add(new AbstractMap.SimpleEntry<>(line, head.getValue()));
+      }
+    } finally {
+      for (BufferedReader reader : readers) reader.close();
+    }
+  }
+}
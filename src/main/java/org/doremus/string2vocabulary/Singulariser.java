@@ -0,0 +1,31 @@
+package org.doremus.string2vocabulary;
+
+/**
+ * Computes the singular form of a (normalised) label.
+ */
+public interface Singulariser {
+
+  /**
+   * Singularise a label
+   * @param label The normalised label, without language tag
+   * @param full Singularise all the words (true) or just the first one (false)
+   * @param lang The language of the label
+   * @return the singular form (the label itself if already singular, then no other singulariser is tried),
+   * or null if this singulariser does not handle the label
+   */
+  String toSingular(String label, boolean full, String lang);
+
+  /**
+   * Load what is needed for singularising in the given language, on the current thread
+   */
+  default void prepare(String lang) {
+  }
+
+  /**
+   * Keep only the primary language subtag: fr-CA --> fr
+   */
+  static String primaryLang(String lang) {
+    if (lang == null) return null;
+    return lang.split("[^a-zA-Z]", 2)[0].toLowerCase();
+  }
+}
@@ -13,15 +13,24 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Properties;
 
+/**
+ * CoreNLP pipeline for lemmatisation.
+ * Only the tokenisation follows the given language: the POS tagging uses the English model
+ * of the CoreNLP models jar, and the lemmatisation is the English morphology.
+ * On other languages it is then a rough fallback, mostly stripping the plural endings.
+ */
 public class StanfordLemmatizer {
   private StanfordCoreNLP pipeline;
 
+  /**
+   * @param lang The tokenisation language, e.g. "fr"
+   */
   public StanfordLemmatizer(String lang) {
     // Create StanfordCoreNLP object properties, with POS tagging
     // (required for lemmatization), and lemmatization
     Properties props;
     props = PropertiesUtils.asProperties(
-      "annotators", "tokenize,ssplit,pos,lemma,parse,natlog",
+      "annotators", "tokenize,ssplit,pos,lemma",
       "ssplit.isOneSentence", "true",
       "tokenize.language", lang);
 
@@ -5,14 +5,31 @@ import org.apache.commons.io.FilenameUtils;
 import org.apache.jena.vocabulary.RDF;
 import org.apache.jena.vocabulary.SKOS;
 import org.apache.jena.rdf.model.*;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
 
 import java.io.File;
+import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Utility for Vocabulary referencing.
  */
 
 public abstract class Vocabulary implements Comparable<Vocabulary> {
+  private static final String[] COMPRESSION_EXTENSIONS = {".gz", ".bz2"};
+  // triple syntaxes by extension; the generic ones (e.g. .xml, .owl) are left out, as they may be anything
+  private static final Map<String, Lang> SYNTAXES = new HashMap<>();
+  // from the fastest to parse
+  private static final List<Lang> FASTEST_SYNTAXES = Arrays.asList(Lang.RDFPROTO, Lang.RDFTHRIFT, Lang.NTRIPLES);
+
+  static {
+    SYNTAXES.put("ttl", Lang.TURTLE);
+    SYNTAXES.put("nt", Lang.NTRIPLES);
+    SYNTAXES.put("rdf", Lang.RDFXML);
+    for (String ext : Lang.RDFTHRIFT.getFileExtensions()) SYNTAXES.put(ext, Lang.RDFTHRIFT);
+    for (String ext : Lang.RDFPROTO.getFileExtensions()) SYNTAXES.put(ext, Lang.RDFPROTO);
+  }
 
   protected Model vocabulary;
   protected String schemePath;
@@ -21,7 +38,7 @@ public abstract class Vocabulary implements Comparable<Vocabulary> {
   public Vocabulary(String name, Model model) {
     this.vocabulary = model;
     this.name = name;
-    this.category = name.split("-", 2)[0];
+    this.category = categoryOf(name);
     this.schemePath = null;
   }
 
@@ -31,8 +48,8 @@ public abstract class Vocabulary implements Comparable<Vocabulary> {
 
   public static Vocabulary fromUrl(String url) {
     Model vocabulary = ModelFactory.createDefaultModel();
-    vocabulary.read(url, "TURTLE");
-    String name = FilenameUtils.getName(url).replace(".ttl", "");
+    RDFDataMgr.read(vocabulary, url, syntaxOf(url));
+    String name = nameOf(url);
 
     // Check the type of Vocabulary
     // is it a SKOS?
@@ -48,6 +65,62 @@ public abstract class Vocabulary implements Comparable<Vocabulary> {
     return null;
   }
 
+  /**
+   * Get the vocabulary name from its file path: /path/to/mop-iaml.ttl.gz --> mop-iaml
+   */
+  public static String nameOf(String path) {
+    String name = stripCompression(FilenameUtils.getName(path));
+    if (syntaxOf(name) != null) name = FilenameUtils.removeExtension(name);
+    return name;
+  }
+
+  /**
+   * Get the RDF syntax of a vocabulary file from its extension, ignoring the compression.
+   * Supported: Turtle (.ttl), N-Triples (.nt), RDF/XML (.rdf), RDF Thrift (.rt) and RDF Protobuf (.rpb).
+   * @return the syntax, or null if not supported
+   */
+  public static Lang syntaxOf(String path) {
+    String extension = FilenameUtils.getExtension(stripCompression(FilenameUtils.getName(path)));
+    return SYNTAXES.get(extension.toLowerCase());
+  }
+
+  /**
+   * List the vocabulary files of a folder.
+   * If the same vocabulary is available in several syntaxes, only the fastest to parse is listed.
+   */
+  public static List<File> listFiles(File folder) {
+    File[] files = folder.listFiles((dir, name) -> syntaxOf(name) != null);
+    Map<String, File> byName = new TreeMap<>();
+    for (File file : Objects.requireNonNull(files, "Not a folder: " + folder))
+      byName.merge(nameOf(file.getName()), file, Vocabulary::fastest);
+    return new ArrayList<>(byName.values());
+  }
+
+  /**
+   * Between two files of the same vocabulary, get the fastest to parse
+   */
+  static File fastest(File a, File b) {
+    return parsingRank(b) < parsingRank(a) ? b : a;
+  }
+
+  private static int parsingRank(File file) {
+    int rank = FASTEST_SYNTAXES.indexOf(syntaxOf(file.getName()));
+    return rank < 0 ? FASTEST_SYNTAXES.size() : rank;
+  }
+
+  private static String stripCompression(String filename) {
+    for (String ext : COMPRESSION_EXTENSIONS)
+      if (filename.toLowerCase().endsWith(ext))
+        return filename.substring(0, filename.length() - ext.length());
+    return filename;
+  }
+
+  /**
+   * Get the family of a vocabulary from its name: mop-iaml --> mop
+   */
+  public static String categoryOf(String name) {
+    return name.split("-", 2)[0];
+  }
 
   public Resource getConcept(String code) {
     if (schemePath == null) return null;
@@ -63,6 +136,36 @@ public abstract class Vocabulary implements Comparable<Vocabulary> {
 
   public abstract Resource findConcept(String text, boolean strict, boolean excludeBrackets);
 
+  /**
+   * Consumer of the labels of a vocabulary
+   */
+  @FunctionalInterface
+  public interface LabelConsumer {
+    /**
+     * @param label The normalised label
+     * @param lang The language tag of the label, empty if none
+     * @param concept The labelled concept
+     * @param prefLabel If it is a preferred label or an alternative one
+     */
+    void accept(String label, String lang, Resource concept, boolean prefLabel);
+  }
+
+  /**
+   * Feed all the labels of the vocabulary to the consumer
+   * @return false if the vocabulary has no labels
+   */
+  public boolean forEachLabel(LabelConsumer consumer) {
+    return false;
+  }
+
+  /**
+   * Feed all the lookup keys of the vocabulary to the consumer
+   * @return false if the vocabulary lookup does not rely on keys
+   */
+  public boolean forEachKey(Consumer<String> consumer) {
+    return false;
+  }
+
 
   @Override
   public int compareTo(Vocabulary v) {
@@ -113,6 +216,13 @@ public abstract class Vocabulary implements Comparable<Vocabulary> {
     return seed.toLowerCase();
   }
 
+  /**
+   * Remove the language tag: violon@fr --> violon
+   */
+  protected static String stripLang(String input) {
+    return input.replaceAll("@[a-z]{2,3}$", "");
+  }
+
   protected static String normNb(String input) {
     // remove brackets
     input = input.replaceAll("\\([^)]+\\)", "").trim();
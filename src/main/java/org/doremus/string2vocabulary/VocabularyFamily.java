@@ -0,0 +1,107 @@
+package org.doremus.string2vocabulary;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * A family of vocabularies, i.e. the vocabularies sharing the same filename prefix.
+ * The vocabulary files are parsed and indexed at the first access, exactly once.
+ */
+public class VocabularyFamily {
+  private final String name;
+
+  private final Map<String, File> files = new TreeMap<>();
+  private final boolean filtered;
+  private volatile List<Vocabulary> vocabularies;
+  private LabelFilter labelFilter;
+  private volatile PrefixIndex prefixIndex;
+
+  public VocabularyFamily(String name) {
+    this(name, false);
+  }
+
+  /**
+   * @param name The family name
+   * @param filtered If a LabelFilter should be built on the family when loaded
+   */
+  public VocabularyFamily(String name, boolean filtered) {
+    this.name = name;
+    this.filtered = filtered;
+  }
+
+  /**
+   * Add a vocabulary file to the family.
+   * If the same vocabulary is available in several syntaxes, the fastest to parse is kept.
+   */
+  void addFile(File file) {
+    files.merge(Vocabulary.nameOf(file.getName()), file, Vocabulary::fastest);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public boolean isLoaded() {
+    return vocabularies != null;
+  }
+
+  /**
+   * Get the vocabularies of the family sorted by priority, loading them if needed
+   */
+  public List<Vocabulary> getVocabularies() {
+    List<Vocabulary> result = vocabularies;
+    if (result == null) {
+      synchronized (this) {
+        result = vocabularies;
+        if (result == null) {
+          result = load();
+          if (filtered) labelFilter = LabelFilter.build(result);
+          vocabularies = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Get the negative pre-check filter of the family, loading the family if needed
+   * @return the filter, or null if not available
+   */
+  public LabelFilter getLabelFilter() {
+    getVocabularies();
+    return labelFilter;
+  }
+
+  /**
+   * Get the prefix index of the family, building it at the first call
+   */
+  public PrefixIndex getPrefixIndex() {
+    PrefixIndex result = prefixIndex;
+    if (result == null) {
+      synchronized (this) {
+        result = prefixIndex;
+        if (result == null) {
+          result = new PrefixIndex(getVocabularies());
+          prefixIndex = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  public Vocabulary getVocabulary(String name) {
+    return getVocabularies().stream()
+            .filter(v -> name.equals(v.getName()))
+            .findFirst().orElse(null);
+  }
+
+  private List<Vocabulary> load() {
+    List<Vocabulary> list = new ArrayList<>();
+    for (File file : files.values()) {
+      Vocabulary vocabulary = Vocabulary.fromFile(file);
+      if (vocabulary != null) list.add(vocabulary);
+    }
+    Collections.sort(list);
+    return Collections.unmodifiableList(list);
+  }
+}
@@ -1,8 +1,11 @@
 package org.doremus.string2vocabulary;
 
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.query.*;
 import org.apache.jena.rdf.model.*;
-import org.apache.jena.rdf.model.impl.StatementImpl;
+import org.apache.jena.util.iterator.ExtendedIterator;
 import org.apache.jena.riot.RDFDataMgr;
 import org.apache.jena.riot.Lang;
 
@@ -14,6 +17,11 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -25,8 +33,7 @@ import java.util.stream.Stream;
  * @see https://github.com/DOREMUS-ANR/string2vocabulary
  */
 public class VocabularyManager {
-  private static List<Vocabulary> vocabularies;
-  private static Map<String, List<Vocabulary>> vocabularyMap;
+  private static Map<String, VocabularyFamily> vocabularyMap;
   private static final ParameterizedSparqlString propertyMatchingSPARQL =
           new ParameterizedSparqlString(
                   "prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#>\n" +
@@ -38,9 +45,16 @@ public class VocabularyManager {
                           " FILTER(isLiteral(?label))} ");
   private static Map<Property, PropMap> prop2FamilyMap;
   private static boolean verbose = false;
+  private static boolean lazyLoading = false;
+  private static boolean labelFilter = true;
   private static String vocabularyDirPath;
-  private static StanfordLemmatizer slem;
   private static String lang = "en";
+  private static final LemmatizerPool lemmatizers = new LemmatizerPool(lang);
+  private static int threads = Runtime.getRuntime().availableProcessors();
+  private static final RunStats stats = new RunStats();
+  // labels longer than 100 characters are not singularised, and CoreNLP has 1 second per label
+  private static final BudgetedSingulariser budgetedLemmatizers = new BudgetedSingulariser(lemmatizers, stats, 100, 1000);
+  private static List<Singulariser> singularisers = Arrays.asList(new RuleBasedSingulariser(), budgetedLemmatizers);
 
   // === Helper methods =======================================================
 
@@ -68,7 +82,7 @@ public class VocabularyManager {
    * @return Map<Property, PropMap>
    * @throws IOException
    */
-  private static Map<Property, PropMap> getMapFromCSV(final Path path) throws IOException {
+  static Map<Property, PropMap> getMapFromCSV(final Path path) throws IOException {
     Model m = ModelFactory.createDefaultModel();
 
     Stream<String> lines = Files.lines(path);
@@ -108,17 +122,77 @@ public class VocabularyManager {
   }
 
   /**
-   * Setter for lemmatiser
+   * Setter for the lazy loading mode: if true, init only lists the vocabularies,
+   * and each family is loaded at its first use. Default: false.
+   */
+  public static void setLazyLoading(boolean lazyLoading) {
+    VocabularyManager.lazyLoading = lazyLoading;
+  }
+
+  /**
+   * Setter for the label filter: if true, a Bloom filter on the lookup keys of each family
+   * skips the labels that cannot match, before any singularisation. Default: true.
+   */
+  public static void setLabelFilter(boolean labelFilter) {
+    VocabularyManager.labelFilter = labelFilter;
+  }
+
+  /**
+   * Setter for the default lemmatiser language, used for the literals without language tag.
+   * The CoreNLP pipelines are loaded lazily, at the first singularisation in a given language.
    */
   public static void setLang(String _lang) {
     lang = _lang;
-    slem = new StanfordLemmatizer(lang);
+    lemmatizers.setDefaultLang(lang);
+  }
+
+  /**
+   * Setter for the singularisers, tried in the given order until the singular form matches a vocabulary.
+   * Default: the rule-based singulariser, then the CoreNLP lemmatisers within the singularisation budget.
+   */
+  public static void setSingularisers(List<Singulariser> singularisers) {
+    VocabularyManager.singularisers = singularisers;
+  }
+
+  public static List<Singulariser> getSingularisers() {
+    return singularisers;
+  }
+
+  /**
+   * Setter for the latency budget of the CoreNLP singularisation in the default singularisers.
+   * Over budget, the label is searched as it is.
+   * @param maxLength Maximum length of the labels to singularise, 0 for no limit. Default: 100
+   * @param timeoutMillis Maximum time for a singularisation, 0 for no limit. Default: 1000
+   */
+  public static void setSingularisationBudget(int maxLength, long timeoutMillis) {
+    budgetedLemmatizers.setBudget(maxLength, timeoutMillis);
+  }
+
+  /**
+   * Getter for the CoreNLP lemmatisers pool
+   */
+  public static LemmatizerPool getLemmatizers() {
+    return lemmatizers;
+  }
+
+  /**
+   * Getter for the time spent in each stage of the matching process
+   */
+  public static RunStats getStats() {
+    return stats;
+  }
+
+  /**
+   * Setter for the number of named graphs processed concurrently
+   */
+  public static void setThreads(int threads) {
+    VocabularyManager.threads = Math.max(1, threads);
   }
 
   public static Vocabulary getVocabulary(String name) {
-    return vocabularies.stream()
-            .filter(v -> name.equals(v.getName()))
-            .findFirst().orElse(null);
+    VocabularyFamily family = vocabularyMap.get(Vocabulary.categoryOf(name));
+    if (family == null) return null;
+    return family.getVocabulary(name);
   }
 
   public static MODS getMODS(String name) {
@@ -127,7 +201,7 @@ public class VocabularyManager {
     return null;
   }
 
-  private static List<Vocabulary> getVocabularyCategory(String category) {
+  public static VocabularyFamily getFamily(String category) {
     return vocabularyMap.get(category);
   }
 
@@ -135,51 +209,88 @@ public class VocabularyManager {
 
   /**
    * Queries the model for a given property and substitutes objects with relevant vocabulary URI if any.
+   *
+   * @return the number of matched elements
    */
-  private static Model propertyMatching(Model model,
-                                        Property property,
-                                        String category,
-                                        boolean singularise) {
+  private static int propertyMatching(Model model,
+                                      Property property,
+                                      String category,
+                                      boolean singularise) {
     int count = 0;
-    List<Statement> statementsToRemove = new ArrayList<>(),
-            statementsToAdd = new ArrayList<>();
+    long start = System.nanoTime(), lookupNanos = 0;
+    Graph graph = model.getGraph();
+    Node p = property.asNode();
+    // flat list of (subject, replaced object, concept) nodes, with no wrapper object per match
+    List<Node> matches = new ArrayList<>();
     try {
-      propertyMatchingSPARQL.setParam("?p", property);
-      QueryExecution qexec = QueryExecutionFactory.create(propertyMatchingSPARQL.asQuery(), model);
-      ResultSet result = qexec.execSelect();
-
-      while (result.hasNext()) {
-        QuerySolution res = result.next();
-        Literal label = res.get("label").asLiteral();
-
-        Resource concept = searchInCategory(label.toString(), null, category, singularise);
-        if (concept == null) continue; //match not found
-
-        Resource subject = res.get("s").asResource();
-        if (res.get("o") != null) {
-          Resource object = res.get("o").asResource();
-
-          // remove all properties of the object
-          for (StmtIterator it = object.listProperties(); it.hasNext(); )
-            statementsToRemove.add(it.nextStatement());
-
-          // remove the link between the object and the subject
-          statementsToRemove.add(new StatementImpl(subject, property, object));
-        } else
-          statementsToRemove.add(new StatementImpl(subject, property, label));
-
-        count++;
-        statementsToAdd.add(new StatementImpl(subject, property, concept));
+      // work on a copy, the shared query template is not thread-safe
+      ParameterizedSparqlString query = propertyMatchingSPARQL.copy();
+      query.setParam("?p", property);
+      try (QueryExecution qexec = QueryExecutionFactory.create(query.asQuery(), model)) {
+        ResultSet result = qexec.execSelect();
+
+        while (result.hasNext()) {
+          QuerySolution res = result.next();
+          Literal label = res.get("label").asLiteral();
+
+          long lookupStart = System.nanoTime();
+          Resource concept = searchInCategory(label.toString(), null, category, singularise);
+          long lookupEnd = System.nanoTime();
+          stats.record(RunStats.Stage.LOOKUP, lookupEnd - lookupStart);
+          lookupNanos += lookupEnd - lookupStart;
+          if (concept == null) continue; //match not found
+
+          RDFNode object = res.get("o");
+          matches.add(res.get("s").asNode());
+          matches.add(object != null ? object.asNode() : label.asNode());
+          matches.add(concept.asNode());
+          count++;
+        }
       }
 
-      model.remove(statementsToRemove);
-      model.add(statementsToAdd);
+      long applyStart = System.nanoTime();
+      stats.record(RunStats.Stage.QUERY, applyStart - start - lookupNanos);
+      for (int i = 0; i < matches.size(); i += 3) {
+        Node subject = matches.get(i), object = matches.get(i + 1);
+        // remove the link between the object and the subject
+        graph.delete(Triple.create(subject, p, object));
+        // remove all properties of the object, and the blank nodes left orphan
+        if (!object.isLiteral()) removeSubtree(graph, object);
+        graph.add(Triple.create(subject, p, matches.get(i + 2)));
+      }
+      stats.record(RunStats.Stage.APPLY, System.nanoTime() - applyStart);
 
       if (verbose) System.out.println("Matched " + count + " elements for " + property.getLocalName());  // TODO: use logging facilities
     } catch (RuntimeException re) {
       System.out.println(re.getMessage());  // TODO: use logging facilities
     }
-    return model;
+    return count;
+  }
+
+  /**
+   * Remove all the properties of a node, then recursively the ones of its blank nodes
+   * that are no longer referenced in the graph.
+   */
+  private static void removeSubtree(Graph graph, Node root) {
+    Deque<Node> stack = new ArrayDeque<>();
+    stack.push(root);
+    while (!stack.isEmpty()) {
+      Node node = stack.pop();
+      List<Node> children = new ArrayList<>();
+      ExtendedIterator<Triple> it = graph.find(node, Node.ANY, Node.ANY);
+      try {
+        while (it.hasNext()) {
+          Node child = it.next().getObject();
+          if (child.isBlank()) children.add(child);
+        }
+      } finally {
+        it.close();
+      }
+
+      graph.remove(node, Node.ANY, Node.ANY);
+      for (Node child : children)
+        if (!graph.contains(Node.ANY, Node.ANY, child)) stack.push(child);
+    }
   }
 
   /**
@@ -212,15 +323,34 @@ public class VocabularyManager {
   }
 
   public static Resource searchInCategory(String label, String lang, String category, boolean singularise) throws RuntimeException {
-    try {
-      List<Vocabulary> vList = getVocabularyCategory(category);
-      return searchInCategory(label, lang, vList, singularise);
-    } catch (NullPointerException npe) {
+    VocabularyFamily family = vocabularyMap.get(category);
+    if (family == null)
       throw new RuntimeException("Family of vocabularies not available: " + category);
-    }
+    return searchInCategory(label, lang, family.getVocabularies(), family.getLabelFilter(), singularise);
+  }
+
+  /**
+   * Suggest the concepts of a family having a label that starts with the given text (typeahead).
+   * The prefix index of the family is built at the first call.
+   * @param prefix The beginning of the label
+   * @param category The family of vocabularies
+   * @param k Maximum number of results
+   * @param lang Language of the labels, null for any language
+   * @return the concepts, by vocabulary priority, then prefLabel before altLabel, then label
+   */
+  public static List<Resource> complete(String prefix, String category, int k, String lang) throws RuntimeException {
+    VocabularyFamily family = vocabularyMap.get(category);
+    if (family == null)
+      throw new RuntimeException("Family of vocabularies not available: " + category);
+    return family.getPrefixIndex().complete(Vocabulary.norm(prefix), k, lang);
   }
 
   public static Resource searchInCategory(String label, String lang, List<Vocabulary> category, boolean singularise) {
+    return searchInCategory(label, lang, category, null, singularise);
+  }
+
+  private static Resource searchInCategory(String label, String lang, List<Vocabulary> category,
+                                           LabelFilter filter, boolean singularise) {
     label = Vocabulary.norm(label);
 
     String langLabel;
@@ -234,14 +364,52 @@ public class VocabularyManager {
     }
 
     if (singularise) {
-      // first check: singularise just the first word
-      Resource match = searchInCategory(toSingular(label, false), lang, category, false);
-      if (match != null) return match;
-      // second check: singularise the whole string
-      match = searchInCategory(toSingular(label, true), lang, category, false);
-      if (match != null) return match;
+      String singularLang = lang != null ? lang : VocabularyManager.lang;
+      // skip the singularisation if no singular form can be in the family
+      boolean firstWord = filter == null || filter.mayHaveSingular(label, false);
+      // with a single word, the whole string is the first word
+      boolean full = label.indexOf(' ') > 0 && (filter == null || filter.mayHaveSingular(label, true));
+      // the cheapest singularisers come first, the next ones are tried only on miss.
+      // A singulariser returning the label as it is considers it already singular:
+      // the next ones are not asked.
+      for (Singulariser singulariser : singularisers) {
+        if (!firstWord && !full) break;
+        String singular;
+        // first check: singularise just the first word
+        if (firstWord) {
+          singular = toSingular(singulariser, label, false, singularLang);
+          if (label.equals(singular)) firstWord = false;
+          Resource match = searchSingular(singular, label, lang, category, filter);
+          if (match != null) return match;
+        }
+        // second check: singularise the whole string
+        if (full) {
+          singular = toSingular(singulariser, label, true, singularLang);
+          if (label.equals(singular)) full = false;
+          Resource match = searchSingular(singular, label, lang, category, filter);
+          if (match != null) return match;
+        }
+      }
+    }
+
+    // rule out the labels that are definitely not in the family
+    if (filter == null || filter.mightContain(langLabel, label)) {
+      Resource concept = findConcept(langLabel, label, category);
+      if (filter != null) filter.record(concept != null);
+      if (concept != null) return concept;
+    }
+
+    // workaround: mi bemol => mi bemol majeur
+    if ("key".equals(category) && !label.endsWith("majeur")) {
+      return searchInCategory(label + " majeur", lang, category, filter, singularise);
     }
+    return null;
+  }
 
+  /**
+   * Probe the vocabularies of the family, from the strictest to the loosest lookup
+   */
+  private static Resource findConcept(String langLabel, String label, List<Vocabulary> category) {
     Resource concept;
     // first check: text + language
     for (Vocabulary v : category) {
@@ -263,38 +431,88 @@ public class VocabularyManager {
       concept = v.findConcept(langLabel, false, true);
       if (concept != null) return concept;
     }
-
-    // workaround: mi bemol => mi bemol majeur
-    if ("key".equals(category) && !label.endsWith("majeur")) {
-      return searchInCategory(label + " majeur", lang, category, singularise);
-    }
     return null;
   }
 
   /**
    * Iterate over the properties to map lists and query the model instance (input dataset) for statements.
+   *
+   * @return the number of matched elements
    */
-  public static void string2uri(Model m) {
-    prop2FamilyMap.forEach((key, value) -> propertyMatching(
-      m,
-      key,
-      value.getCategory(),
-      value.singularise())
-    );
+  public static int string2uri(Model m) {
+    int count = 0;
+    for (Map.Entry<Property, PropMap> entry : prop2FamilyMap.entrySet())
+      count += propertyMatching(
+        m,
+        entry.getKey(),
+        entry.getValue().getCategory(),
+        entry.getValue().singularise());
+    return count;
   }
 
-  private static String toSingular(String r, boolean full) {
-    if (r == null || r.isEmpty()) return "";
-    if (full)
-      return slem.lemmatize(r).stream()
-              .collect(Collectors.joining(" "));
+  /**
+   * Apply *string2uri* to every named graph of the dataset whose name matches the given pattern.
+   * Graphs are matched concurrently (see *setThreads*) against the shared vocabulary index.
+   * Each graph is patched on a private copy, that is written back to the dataset once done.
+   *
+   * @param dataset The dataset containing the named graphs
+   * @param graphPattern Pattern on the graph names, null for all the named graphs
+   * @return the number of matched elements for each processed graph
+   */
+  public static Map<String, Integer> string2uri(Dataset dataset, Pattern graphPattern) {
+    List<String> names = new ArrayList<>();
+    dataset.listNames().forEachRemaining(name -> {
+      if (graphPattern == null || graphPattern.matcher(name).matches()) names.add(name);
+    });
+    Collections.sort(names);
+
+    Map<String, Integer> counts = new LinkedHashMap<>();
+    if (names.isEmpty()) return counts;
 
-    String[] parts = r.split(" ");
-    if (parts.length == 1) return slem.lemmatize(parts[0]).get(0);
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, names.size()));
+    try {
+      Map<String, Future<Integer>> tasks = new LinkedHashMap<>();
+      for (String name : names)
+        tasks.put(name, executor.submit(() -> {
+          Model m = ModelFactory.createDefaultModel();
+          synchronized (dataset) {
+            m.add(dataset.getNamedModel(name));
+          }
+          int count = string2uri(m);
+          synchronized (dataset) {
+            dataset.replaceNamedModel(name, m);
+          }
+          return count;
+        }));
+
+      for (Map.Entry<String, Future<Integer>> task : tasks.entrySet())
+        counts.put(task.getKey(), task.getValue().get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while processing the named graphs", e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException("Error while processing the named graphs", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+    return counts;
+  }
 
-    // cornets à pistons --> cornet à pistons
-    parts[0] = slem.lemmatize(parts[0]).get(0);
-    return String.join(" ", parts);
+  private static String toSingular(Singulariser singulariser, String label, boolean full, String lang) {
+    long start = System.nanoTime();
+    String singular = singulariser.toSingular(label, full, lang);
+    stats.record(RunStats.Stage.SINGULARISE, System.nanoTime() - start);
+    return singular;
+  }
+
+  /**
+   * Search for the singular form of a label.
+   * Skipped when there is no singular form or when it is equal to the label, which is searched anyway.
+   */
+  private static Resource searchSingular(String singular, String label, String lang,
+                                         List<Vocabulary> category, LabelFilter filter) {
+    if (singular == null || singular.equals(label)) return null;
+    return searchInCategory(singular, lang, category, filter, false);
   }
 
   // === Run methods ==========================================================
@@ -317,33 +535,31 @@ public class VocabularyManager {
    * VocabularyManager initialisation procedure.
    * Basically,
    * - instanciates fundamental objects
-   * - loads vocabularies from resource folder
+   * - lists the vocabularies of the resource folder by family
+   * - loads them, unless in lazy loading mode
    */
   public static void init(Map<Property, PropMap> property2FamilyMap) {
-    vocabularies = new ArrayList<>();
-    vocabularyMap = new HashMap<>();
+    Map<String, VocabularyFamily> families = new HashMap<>();
 
     prop2FamilyMap = property2FamilyMap;
 
     // load vocabularies from resource folder
     File vocabularyDir = new File(vocabularyDirPath);
 
-    File[] files = vocabularyDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".ttl"));
-    assert files != null;
-
-    for (File file : files) {
-      Vocabulary vocabulary = Vocabulary.fromFile(file);
-      if (vocabulary == null) continue;
-      vocabularies.add(vocabulary);
-
-      List<Vocabulary> thisCategory = vocabularyMap.computeIfAbsent(vocabulary.getCategory(), k -> new ArrayList<>());
-      thisCategory.add(vocabulary);
-      Collections.sort(thisCategory);
+    for (File file : Vocabulary.listFiles(vocabularyDir)) {
+      String category = Vocabulary.categoryOf(Vocabulary.nameOf(file.getName()));
+      families.computeIfAbsent(category, c -> new VocabularyFamily(c, labelFilter)).addFile(file);
     }
+    vocabularyMap = families;
+
+    if (!lazyLoading)
+      families.values().forEach(VocabularyFamily::getVocabularies);
 
-    Collections.sort(vocabularies);
+    // make the vocabularies available in SPARQL queries
+    SPARQLFunctions.register();
 
-    setLang(lang);
+    if (prop2FamilyMap.values().stream().noneMatch(PropMap::singularise))
+      System.out.println("No property to singularise, the lemmatisers will not be loaded");  // TODO: use logging facilities
   }
 
   /**
@@ -369,7 +585,7 @@ public class VocabularyManager {
   /**
    * Full run of the patching process for standalone script
    * @param property2family Table file with property-vocabulary mapping
-   * @param vocabularyFolder Folder containing the vocabularies in turtle format
+   * @param vocabularyFolder Folder containing the vocabularies, in a supported RDF syntax
    * @param m The model instance (input dataset)
    * @param outputFile Filename for saving the resulting dataset
    * @param lang Language to be used for singularising the words, e.g. 'en"
@@ -385,16 +601,75 @@ public class VocabularyManager {
     // Vocabulary manager init
     VocabularyManager.setVerbose(true);
     VocabularyManager.setVocabularyFolder(vocabularyFolder);
-    VocabularyManager.init(property2family);
     VocabularyManager.setLang(lang);
+    VocabularyManager.init(property2family);
 
     // Call processing
     VocabularyManager.string2uri(m);
+    if (verbose) printStats();
 
     // Breaks on no output file config
     if (outputFile == null) return;
 
-    // Save results to file
+    save(dataset, outputFile);
+  }
+
+  /**
+   * Full run of the patching process on all the named graphs matching a pattern
+   * @param property2family Table file with property-vocabulary mapping
+   * @param vocabularyFolder Folder containing the vocabularies, in a supported RDF syntax
+   * @param dataset The input dataset
+   * @param graphPattern Pattern on the graph names, null for all the named graphs
+   * @param outputFile Filename for saving the resulting dataset
+   * @param lang Language to be used for singularising the words, e.g. 'en"
+   */
+  public static void run(String property2family,
+                         String vocabularyFolder,
+                         Dataset dataset,
+                         Pattern graphPattern,
+                         String outputFile,
+                         String lang) throws IOException {
+
+    // Vocabulary manager init
+    VocabularyManager.setVerbose(true);
+    VocabularyManager.setVocabularyFolder(vocabularyFolder);
+    VocabularyManager.setLang(lang);
+    VocabularyManager.init(property2family);
+
+    // Call processing
+    Map<String, Integer> counts = VocabularyManager.string2uri(dataset, graphPattern);
+
+    // Report
+    int total = 0;
+    for (Map.Entry<String, Integer> count : counts.entrySet()) {
+      System.out.println("Matched " + count.getValue() + " elements in graph '" + count.getKey() + "'");  // TODO: use logging facilities
+      total += count.getValue();
+    }
+    System.out.println("Matched " + total + " elements in " + counts.size() + " graphs");  // TODO: use logging facilities
+    if (verbose) printStats();
+
+    // Breaks on no output file config
+    if (outputFile == null) return;
+
+    save(dataset, outputFile);
+  }
+
+  /**
+   * Print the time spent in each stage, the skipped and timed out singularisations,
+   * and the statistics of the label filters of the loaded families
+   */
+  private static void printStats() {
+    System.out.print(stats);  // TODO: use logging facilities
+    vocabularyMap.values().stream()
+      .filter(VocabularyFamily::isLoaded)
+      .filter(family -> family.getLabelFilter() != null)
+      .forEach(family -> System.out.println("Label filter of '" + family.getName() + "': " + family.getLabelFilter()));  // TODO: use logging facilities
+  }
+
+  /**
+   * Save the dataset to file
+   */
+  private static void save(Dataset dataset, String outputFile) throws IOException {
     // TODO: give the opportunity to save the dataset with patched data VS only the patched model
     System.out.println("Saving data: to '" + outputFile + "' ...");  // TODO: use logging facilities
     FileOutputStream out = new FileOutputStream(outputFile, false);
@@ -419,6 +694,10 @@ public class VocabularyManager {
     // Load params
     String lang = getParam(params, "--lang");
     String namedGraph = getParam(params, "--graph");  // Example: "http://example.org/graph/object/"
+    String graphs = getParam(params, "--graphs");  // Example: "http://example.org/graph/.*", or "*" for all the named graphs
+    String threads = getParam(params, "--threads");
+    boolean lazy = params.contains("--lazy");
+    String shards = getParam(params, "--shards");
     String property2family = getParam(params, "--map");
     String vocabularyFolder = getParam(params, "--vocabularies");
 
@@ -452,14 +731,46 @@ public class VocabularyManager {
         "':vocabularies='" + vocabularyFolder +
         "':output='" + output +
         "':lang='" + lang +
+        "':graphs='" + graphs +
+        "':shards='" + shards +
         "'."
     );  // TODO: use logging facilities
 
+    // Process a shard, as worker of a sharded run
+    if (params.contains("--worker")) {
+      ShardedRunner.worker(property2family, vocabularyFolder, input, output, lang);
+      System.exit(0);  // Exit with normal status code.
+    }
+
+    // Split the input in shards, processed by worker processes
+    if (shards != null) {
+      ShardedRunner.run(property2family, vocabularyFolder, input, output, lang, Integer.parseInt(shards));
+      System.exit(0);  // Exit with normal status code.
+    }
+
     // Load the dataset
     // See https://jena.apache.org/documentation/javadoc/arq/org.apache.jena.arq/org/apache/jena/riot/RDFDataMgr.html
     // Remark: loadDataset() automatically detects the serialization based on the file extension, hence it is useless to call `loadDataset(input, Lang.XXX) if the extension is explicit.
     Dataset dataset = RDFDataMgr.loadDataset(input);
 
+    if (threads != null) VocabularyManager.setThreads(Integer.parseInt(threads));
+    VocabularyManager.setLazyLoading(lazy);
+
+    // Process all the named graphs matching the pattern (if relevant)
+    if (graphs != null && !graphs.isEmpty()) {
+      System.out.println("Processing: start on named graphs '" + graphs + "'...");  // TODO: use logging facilities
+      VocabularyManager.run(
+        property2family,
+        vocabularyFolder,
+        dataset,
+        "*".equals(graphs) ? null : Pattern.compile(graphs),
+        output,
+        lang
+      );
+      System.out.println("Processing: done.");  // TODO: use logging facilities
+      System.exit(0);  // Exit with normal status code.
+    }
+
     // Make a model instance (mi) from the dataset and named graph (if relevant)
     Model mi;
     if (namedGraph == null || namedGraph.isEmpty()) {
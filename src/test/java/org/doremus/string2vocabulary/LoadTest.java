@@ -0,0 +1,203 @@
+package org.doremus.string2vocabulary;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+
+import java.io.*;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * End-to-end throughput and memory harness.
+ * Generates a synthetic dataset, runs the full matching pipeline on it and reports
+ * throughput, time per stage, GC time and peak memory.
+ * The results can be saved as baseline and compared against a saved baseline.
+ *
+ * Usage:
+ * gradle loadTest -Precords=100000 [-PsaveBaseline=baseline.properties] [-Pbaseline=baseline.properties]
+ */
+public class LoadTest {
+
+  public static void main(String[] args) throws IOException {
+    List<String> params = Arrays.asList(args);
+    String property2family = getParam(params, "--map", "src/test/resources/property2family.csv");
+    String vocabularyFolder = getParam(params, "--vocabularies", "src/test/resources/vocabulary");
+    String lang = getParam(params, "--lang", "fr");
+    int records = Integer.parseInt(getParam(params, "--records", "10000"));
+    long seed = Long.parseLong(getParam(params, "--seed", "42"));
+    String dump = getParam(params, "--dump", null);
+    String baseline = getParam(params, "--baseline", null);
+    String saveBaseline = getParam(params, "--save-baseline", null);
+    double tolerance = Double.parseDouble(getParam(params, "--tolerance", "0.2"));
+
+    // Generate the data
+    Model model = new SyntheticDataGenerator(property2family, vocabularyFolder, seed).generate(records);
+    long triples = model.size();
+    System.out.println("Generated " + records + " records, " + triples + " triples");
+    if (dump != null) try (OutputStream out = new FileOutputStream(dump)) {
+      RDFDataMgr.write(out, model, Lang.NTRIPLES);
+    }
+
+    // Init
+    HeapSampler heap = new HeapSampler();
+    heap.start();
+    long gcStart = gcMillis();
+    long start = System.nanoTime();
+    VocabularyManager.setVocabularyFolder(vocabularyFolder);
+    VocabularyManager.setLang(lang);
+    VocabularyManager.init(property2family);
+    long initNanos = System.nanoTime() - start;
+
+    // Run
+    VocabularyManager.getStats().reset();
+    start = System.nanoTime();
+    int matched = VocabularyManager.string2uri(model);
+    long runNanos = System.nanoTime() - start;
+    heap.interrupt();
+
+    Properties results = new Properties();
+    results.setProperty("records", String.valueOf(records));
+    results.setProperty("triples", String.valueOf(triples));
+    results.setProperty("matched", String.valueOf(matched));
+    results.setProperty("initMs", String.format("%.1f", initNanos / 1e6));
+    results.setProperty("runMs", String.format("%.1f", runNanos / 1e6));
+    results.setProperty("triplesPerSecond", String.format("%.1f", triples / (runNanos / 1e9)));
+    results.setProperty("gcMs", String.valueOf(gcMillis() - gcStart));
+    results.setProperty("peakHeapMb", String.format("%.1f", heap.getPeak() / 1048576.0));
+    results.setProperty("peakRssMb", String.format("%.1f", peakRss(heap.getPeak()) / 1048576.0));
+
+    RunStats stats = VocabularyManager.getStats();
+    for (RunStats.Stage stage : RunStats.Stage.values()) {
+      long calls = stats.getCalls(stage);
+      results.setProperty("stage." + stage + ".ms", String.format("%.1f", stats.getNanos(stage) / 1e6));
+      results.setProperty("stage." + stage + ".usPerCall",
+        String.format("%.2f", calls == 0 ? 0 : stats.getNanos(stage) / 1e3 / calls));
+      results.setProperty("stage." + stage + ".p99Us", String.format("%.2f", stats.getPercentileNanos(stage, 0.99) / 1e3));
+      results.setProperty("stage." + stage + ".maxUs", String.format("%.2f", stats.getMaxNanos(stage) / 1e3));
+    }
+    for (RunStats.Event event : RunStats.Event.values())
+      results.setProperty("event." + event, String.valueOf(stats.getCount(event)));
+
+    System.out.println("=== Results ===");
+    results.stringPropertyNames().stream().sorted()
+      .forEach(k -> System.out.println(k + " = " + results.getProperty(k)));
+
+    if (saveBaseline != null) try (OutputStream out = new FileOutputStream(saveBaseline)) {
+      results.store(out, "string2vocabulary load test baseline");
+      System.out.println("Baseline saved to " + saveBaseline);
+    }
+
+    if (baseline != null && !compare(results, baseline, tolerance)) System.exit(1);
+  }
+
+  /**
+   * Compare the results against a saved baseline
+   * @return false if the throughput, the peak memory, the time per call or the p99 latency of a stage
+   * regressed beyond the tolerance
+   */
+  private static boolean compare(Properties results, String baselineFile, double tolerance) throws IOException {
+    Properties baseline = new Properties();
+    try (InputStream in = new FileInputStream(baselineFile)) {
+      baseline.load(in);
+    }
+
+    System.out.println("=== Comparison with " + baselineFile + " ===");
+    boolean ok = check(results, baseline, "triplesPerSecond", 1 - tolerance, true);
+    ok &= check(results, baseline, "peakHeapMb", 1 + tolerance, false);
+    ok &= check(results, baseline, "peakRssMb", 1 + tolerance, false);
+    for (RunStats.Stage stage : RunStats.Stage.values())
+      ok &= check(results, baseline, "stage." + stage + ".usPerCall", 1 + tolerance, false);
+    // tail latency of the label lookups, see the singularisation budget
+    ok &= check(results, baseline, "stage." + RunStats.Stage.LOOKUP + ".p99Us", 1 + tolerance, false);
+    ok &= check(results, baseline, "stage." + RunStats.Stage.SINGULARISE + ".p99Us", 1 + tolerance, false);
+    // the max is a single sample, too noisy to fail the run
+    info(results, baseline, "stage." + RunStats.Stage.LOOKUP + ".maxUs");
+    info(results, baseline, "stage." + RunStats.Stage.SINGULARISE + ".maxUs");
+    System.out.println(ok ? "No regression" : "REGRESSION");
+    return ok;
+  }
+
+  private static boolean check(Properties results, Properties baseline, String key, double factor, boolean higherIsBetter) {
+    if (!baseline.containsKey(key)) return true;
+    double now = Double.parseDouble(results.getProperty(key));
+    double before = Double.parseDouble(baseline.getProperty(key));
+    double limit = before * factor;
+    boolean ok = higherIsBetter ? now >= limit : now <= limit;
+    System.out.println(String.format("%s: %.2f (baseline %.2f, %+.1f%%)%s", key, now, before,
+      before == 0 ? 0 : (now - before) / before * 100, ok ? "" : " <-- regression"));
+    return ok;
+  }
+
+  private static void info(Properties results, Properties baseline, String key) {
+    if (!baseline.containsKey(key)) return;
+    System.out.println(String.format("%s: %s (baseline %s)", key, results.getProperty(key), baseline.getProperty(key)));
+  }
+
+  private static long gcMillis() {
+    long total = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+      total += Math.max(0, gc.getCollectionTime());
+    return total;
+  }
+
+  /**
+   * Samples the heap in use every 10 ms, keeping the maximum.
+   * The peaks of the single memory pools are not summed, as they are not reached at the same time.
+   */
+  private static class HeapSampler extends Thread {
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private volatile long peak;
+
+    HeapSampler() {
+      setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      while (!isInterrupted()) {
+        sample();
+        try {
+          Thread.sleep(10);
+        } catch (InterruptedException e) {
+          break;
+        }
+      }
+    }
+
+    private void sample() {
+      peak = Math.max(peak, memory.getHeapMemoryUsage().getUsed());
+    }
+
+    long getPeak() {
+      sample();
+      return peak;
+    }
+  }
+
+  /**
+   * Peak resident set size of the process (Linux only), in bytes. Falls back to the given peak heap.
+   */
+  private static long peakRss(long peakHeap) {
+    try {
+      for (String line : Files.readAllLines(Paths.get("/proc/self/status")))
+        if (line.startsWith("VmHWM:"))
+          return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+    } catch (IOException | NumberFormatException e) {
+      // not available on this platform
+    }
+    return peakHeap;
+  }
+
+  private static String getParam(List<String> params, String key, String defaultValue) {
+    int i = params.indexOf(key);
+    if (i < 0) return defaultValue;
+    return params.get(i + 1);
+  }
+}
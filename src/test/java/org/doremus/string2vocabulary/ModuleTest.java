@@ -1,15 +1,39 @@
 package org.doremus.string2vocabulary;
 
 import org.apache.jena.query.Dataset;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.apache.jena.vocabulary.SKOS;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 public class ModuleTest {
   private static final String syntax = "TURTLE";
@@ -37,6 +61,33 @@ public class ModuleTest {
     }
   }
 
+  @Test
+  public void string2uriNamedGraphs() {
+    ClassLoader classLoader = getClass().getClassLoader();
+    String property2family = classLoader.getResource("property2family.csv").getFile();
+    String input = classLoader.getResource("input.trig").getFile();
+    String vocabularyFolder = classLoader.getResource("vocabulary").getPath();
+
+    try {
+      Dataset din = RDFDataMgr.loadDataset(input);
+      VocabularyManager.setVocabularyFolder(vocabularyFolder);
+      VocabularyManager.init(property2family);
+      VocabularyManager.setLang("fr");
+      VocabularyManager.setThreads(2);
+      Map<String, Integer> counts = VocabularyManager.string2uri(din, null);
+
+      Resource vms = din.getDefaultModel().createResource("http://data.doremus.org/vocabulary/iaml/mop/vms");
+      Assert.assertEquals(2, counts.size());
+      Assert.assertEquals(Integer.valueOf(1), counts.get("http://example.org/graph/object/"));
+      Assert.assertEquals(Integer.valueOf(1), counts.get("http://example.org/graph/other/"));
+      Assert.assertTrue(din.getNamedModel("http://example.org/graph/other/").containsResource(vms));
+      // the default graph is left untouched
+      Assert.assertFalse(din.getDefaultModel().containsResource(vms));
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
   @Test
   public void matchNoBrackets() {
     ClassLoader classLoader = getClass().getClassLoader();
@@ -52,6 +103,559 @@ public class ModuleTest {
     Assert.assertNotNull(noBrackMatch);
   }
 
+  @Test
+  public void lazyLoading() {
+    ClassLoader classLoader = getClass().getClassLoader();
+    String property2family = classLoader.getResource("property2family.csv").getFile();
+    String vocabularyFolder = classLoader.getResource("vocabulary").getPath();
+
+    try {
+      VocabularyManager.setVocabularyFolder(vocabularyFolder);
+      VocabularyManager.setLazyLoading(true);
+      VocabularyManager.init(property2family);
+
+      Assert.assertFalse(VocabularyManager.getFamily("mop").isLoaded());
+      Assert.assertFalse(VocabularyManager.getFamily("key").isLoaded());
+
+      Assert.assertNotNull(VocabularyManager.getVocabulary("key").getConcept("dm"));
+      Assert.assertTrue(VocabularyManager.getFamily("key").isLoaded());
+      Assert.assertFalse(VocabularyManager.getFamily("mop").isLoaded());
+    } catch (IOException e) {
+      e.printStackTrace();
+    } finally {
+      VocabularyManager.setLazyLoading(false);
+    }
+  }
+
+  @Test
+  public void nestedBlankNodesRemoved() throws IOException {
+    ClassLoader classLoader = getClass().getClassLoader();
+    String property2family = classLoader.getResource("property2family.csv").getFile();
+    String vocabularyFolder = classLoader.getResource("vocabulary").getPath();
+
+    VocabularyManager.setVocabularyFolder(vocabularyFolder);
+    VocabularyManager.setLang("fr");
+    VocabularyManager.init(property2family);
+
+    Model m = ModelFactory.createDefaultModel();
+    String ns = "http://example.org/";
+    m.createResource(ns + "work")
+      .addProperty(m.createProperty("http://data.doremus.org/ontology#U2_foresees_use_of_medium_of_performance"),
+        m.createResource()
+          .addProperty(RDFS.label, "mezzosopranos")
+          .addProperty(m.createProperty(ns + "note"), m.createResource()
+            .addProperty(m.createProperty(ns + "text"), "nested")));
+
+    Assert.assertEquals(1, VocabularyManager.string2uri(m));
+    Assert.assertEquals(1, m.size());
+    Assert.assertTrue(m.containsResource(m.createResource("http://data.doremus.org/vocabulary/iaml/mop/vms")));
+  }
+
+  @Test
+  public void complete() throws IOException {
+    ClassLoader classLoader = getClass().getClassLoader();
+    String property2family = classLoader.getResource("property2family.csv").getFile();
+    String vocabularyFolder = classLoader.getResource("vocabulary").getPath();
+
+    VocabularyManager.setVocabularyFolder(vocabularyFolder);
+    VocabularyManager.init(property2family);
+
+    List<Resource> suggestions = VocabularyManager.complete("Mezzo", "mop", 5, null);
+    Assert.assertFalse(suggestions.isEmpty());
+    Assert.assertTrue(suggestions.size() <= 5);
+    Assert.assertTrue(suggestions.stream().allMatch(r -> r.listProperties(SKOS.prefLabel).toList().stream()
+      .anyMatch(st -> Vocabulary.norm(st.getString()).startsWith("mezzo"))
+      || r.listProperties(SKOS.altLabel).toList().stream()
+      .anyMatch(st -> Vocabulary.norm(st.getString()).startsWith("mezzo"))));
+
+    Assert.assertTrue(VocabularyManager.complete("zzzz qwerty", "mop", 5, null).isEmpty());
+
+    // by vocabulary priority (iaml first), then prefLabel before altLabel
+    List<Vocabulary> vocabularies = VocabularyManager.getFamily("mop").getVocabularies();
+    Assert.assertEquals("mop-iaml", vocabularies.get(0).getName());
+    List<Resource> all = VocabularyManager.complete("viol", "mop", 500, null);
+    Assert.assertTrue(all.size() > 10);
+    int lastRank = 0;
+    boolean lastPref = true;
+    for (Resource r : all) {
+      int rank = 0;
+      while (!vocabularies.get(rank).vocabulary.containsResource(r)) rank++;
+      boolean pref = hasLabelStarting(r, SKOS.prefLabel, "viol", null);
+      Assert.assertTrue(rank >= lastRank);
+      Assert.assertTrue(rank > lastRank || lastPref || !pref);
+      lastRank = rank;
+      lastPref = pref;
+    }
+    Assert.assertTrue(lastRank > 0);
+    Assert.assertEquals("http://data.doremus.org/vocabulary/iaml/mop/vms",
+      VocabularyManager.complete("mezzo", "mop", 5, "en").get(0).getURI());
+
+    // only labels in the requested language
+    for (String lang : new String[]{"en", "fr"}) {
+      List<Resource> filtered = VocabularyManager.complete("viol", "mop", 500, lang);
+      Assert.assertFalse(filtered.isEmpty());
+      Assert.assertTrue(filtered.size() < all.size());
+      for (Resource r : filtered)
+        Assert.assertTrue(hasLabelStarting(r, SKOS.prefLabel, "viol", lang)
+          || hasLabelStarting(r, SKOS.altLabel, "viol", lang));
+    }
+    // mezzo-soprano@en, but bas-dessus@fr
+    Assert.assertTrue(VocabularyManager.complete("mezzo", "mop", 5, "fr").stream()
+      .noneMatch(r -> r.getURI().equals("http://data.doremus.org/vocabulary/iaml/mop/vms")));
+  }
+
+  private static boolean hasLabelStarting(Resource r, Property p, String prefix, String lang) {
+    return r.listProperties(p).toList().stream()
+      .anyMatch(st -> Vocabulary.norm(st.getString()).startsWith(prefix)
+        && (lang == null || lang.equalsIgnoreCase(st.getLanguage())));
+  }
+
+  @Test
+  public void sparqlFunctions() throws IOException {
+    ClassLoader classLoader = getClass().getClassLoader();
+    String property2family = classLoader.getResource("property2family.csv").getFile();
+    String vocabularyFolder = classLoader.getResource("vocabulary").getPath();
+
+    VocabularyManager.setVocabularyFolder(vocabularyFolder);
+    VocabularyManager.setLang("fr");
+    VocabularyManager.init(property2family);
+
+    String query = "prefix s2v: <" + SPARQLFunctions.NS + ">\n" +
+      "select ?lookup ?match ?none where {\n" +
+      "  BIND(s2v:lookup(\"mezzosopranos\", \"mop\", true) AS ?lookup)\n" +
+      "  BIND(s2v:lookup(\"zzzz qwerty\", \"mop\") AS ?none)\n" +
+      "  ?match s2v:match (\"mezzosopranos\" \"mop\" true)\n" +
+      "}";
+    try (QueryExecution qexec = QueryExecutionFactory.create(query, ModelFactory.createDefaultModel())) {
+      QuerySolution res = qexec.execSelect().next();
+      Assert.assertEquals("http://data.doremus.org/vocabulary/iaml/mop/vms", res.getResource("lookup").getURI());
+      Assert.assertEquals(res.getResource("lookup"), res.getResource("match"));
+      Assert.assertNull(res.get("none"));
+    }
+  }
+
+  @Test
+  public void binaryVocabulary() throws IOException {
+    ClassLoader classLoader = getClass().getClassLoader();
+    String vocabularyFolder = classLoader.getResource("vocabulary").getPath();
+    File compiled = Files.createTempDirectory("vocabulary").toFile();
+
+    VocabularyCompiler.compile(new File(vocabularyFolder), compiled, Lang.RDFTHRIFT);
+    File thrift = new File(compiled, "test." + Lang.RDFTHRIFT.getFileExtensions().get(0));
+    Assert.assertTrue(thrift.exists());
+    Assert.assertEquals("test", Vocabulary.nameOf(thrift.getPath()));
+    Assert.assertEquals("mop-iaml", Vocabulary.nameOf("/path/to/mop-iaml.ttl.gz"));
+
+    Vocabulary v = Vocabulary.fromFile(thrift);
+    Assert.assertNotNull(v.findConcept("test@en", true, true));
+  }
+
+  @Test
+  public void vocabularyFiles() throws IOException {
+    ClassLoader classLoader = getClass().getClassLoader();
+    String vocabularyFolder = classLoader.getResource("vocabulary").getPath();
+    File folder = Files.createTempDirectory("vocabulary").toFile();
+
+    // the same vocabulary in two syntaxes, and files that are not vocabularies
+    Files.copy(new File(vocabularyFolder, "test.ttl").toPath(), new File(folder, "test.ttl").toPath());
+    try (OutputStream out = Files.newOutputStream(new File(folder, "test.nt").toPath())) {
+      RDFDataMgr.write(out, RDFDataMgr.loadModel(vocabularyFolder + "/test.ttl"), Lang.NTRIPLES);
+    }
+    for (String stray : new String[]{"pom.xml", "ontology.owl", "data.trig", "data.nq", "context.jsonld"})
+      Files.write(new File(folder, stray).toPath(), "x".getBytes());
+
+    Assert.assertNull(Vocabulary.syntaxOf("pom.xml"));
+    Assert.assertEquals(Lang.TURTLE, Vocabulary.syntaxOf("mop-iaml.ttl.gz"));
+    List<File> files = Vocabulary.listFiles(folder);
+    Assert.assertEquals(1, files.size());
+    Assert.assertEquals("test.nt", files.get(0).getName());
+
+    File compiled = Files.createTempDirectory("compiled").toFile();
+    VocabularyCompiler.compile(folder, compiled, Lang.RDFTHRIFT);
+    Assert.assertEquals(1, Objects.requireNonNull(compiled.list()).length);
+  }
+
+  @Test
+  public void parallelIndex() {
+    ClassLoader classLoader = getClass().getClassLoader();
+    String vocabularyFolder = classLoader.getResource("vocabulary").getPath();
+    Model model = RDFDataMgr.loadModel(vocabularyFolder + "/mop-diabolo.ttl");
+    Assert.assertTrue(model.listSubjectsWithProperty(RDF.type, SKOS.Concept).toList().size() > 1000);
+    // conflicts on a label resolved in favour of the concept without narrower ones
+    Assert.assertTrue(model.contains(null, SKOS.narrower, (RDFNode) null));
+
+    SKOSVocabulary sequential = new SKOSVocabulary("mop-diabolo", model, Integer.MAX_VALUE);
+    SKOSVocabulary parallel = new SKOSVocabulary("mop-diabolo", model, 0);
+    for (boolean strict : new boolean[]{true, false})
+      for (boolean excludeBrackets : new boolean[]{true, false}) {
+        Assert.assertFalse(sequential.substitutionMap(strict, excludeBrackets).isEmpty());
+        Assert.assertEquals(sequential.substitutionMap(strict, excludeBrackets),
+          parallel.substitutionMap(strict, excludeBrackets));
+      }
+  }
+
+  @Test
+  public void labelFilter() {
+    ClassLoader classLoader = getClass().getClassLoader();
+    String vocabularyFolder = classLoader.getResource("vocabulary").getPath();
+
+    Vocabulary v = Vocabulary.fromFile(new File(vocabularyFolder + "/test.ttl"));
+    LabelFilter filter = LabelFilter.build(java.util.Collections.singletonList(v));
+    Assert.assertNotNull(filter);
+
+    // no false negatives
+    v.forEachKey(key -> Assert.assertTrue(filter.mightContain(key, Vocabulary.stripLang(key))));
+    Assert.assertFalse(filter.mightContain("zzzz qwerty@en", "zzzz qwerty"));
+    Assert.assertEquals(1, filter.getNegatives());
+  }
+
+  @Test
+  public void labelFilterDisabled() {
+    ClassLoader classLoader = getClass().getClassLoader();
+    String property2family = classLoader.getResource("property2family.csv").getFile();
+    String vocabularyFolder = classLoader.getResource("vocabulary").getPath();
+
+    try {
+      VocabularyManager.setVocabularyFolder(vocabularyFolder);
+      VocabularyManager.setLabelFilter(false);
+      VocabularyManager.init(property2family);
+
+      Assert.assertNull(VocabularyManager.getFamily("mop").getLabelFilter());
+      Assert.assertNotNull(VocabularyManager.searchInCategory("violon", "fr", "mop", false));
+    } catch (IOException e) {
+      e.printStackTrace();
+    } finally {
+      VocabularyManager.setLabelFilter(true);
+    }
+  }
+
+  @Test
+  public void singularisationBudget() {
+    RunStats stats = new RunStats();
+    Singulariser slow = (label, full, lang) -> {
+      try {
+        Thread.sleep(5000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return label;
+    };
+    BudgetedSingulariser budgeted = new BudgetedSingulariser(slow, stats, 10, 50);
+
+    Assert.assertNull(budgeted.toSingular("a very long free text label", false, "en"));
+    Assert.assertEquals(1, stats.getCount(RunStats.Event.SINGULARISATION_SKIPPED));
+
+    Assert.assertNull(budgeted.toSingular("violins", false, "en"));
+    Assert.assertEquals(1, stats.getCount(RunStats.Event.SINGULARISATION_TIMEOUT));
+
+    // within the budget
+    BudgetedSingulariser fast = new BudgetedSingulariser(new RuleBasedSingulariser(), stats, 10, 1000);
+    Assert.assertEquals("violin", fast.toSingular("violins", false, "en"));
+  }
+
+  @Test
+  public void singularisationBudgetBoundedWorkers() throws InterruptedException {
+    RunStats stats = new RunStats();
+    java.util.concurrent.atomic.AtomicInteger prepared = new java.util.concurrent.atomic.AtomicInteger();
+    Singulariser stubborn = new Singulariser() {
+      @Override
+      public String toSingular(String label, boolean full, String lang) {
+        // ignores the interruption, like CoreNLP inside an annotator
+        long end = System.currentTimeMillis() + 1000;
+        while (System.currentTimeMillis() < end) Thread.yield();
+        return label;
+      }
+
+      @Override
+      public void prepare(String lang) {
+        prepared.incrementAndGet();
+      }
+    };
+    BudgetedSingulariser budgeted = new BudgetedSingulariser(stubborn, stats, 100, 100, 1);
+
+    Assert.assertNull(budgeted.toSingular("violins", false, "en"));
+    Assert.assertEquals(1, stats.getCount(RunStats.Event.SINGULARISATION_TIMEOUT));
+
+    // the only worker is still busy: queued out within the budget, without a new worker
+    long start = System.currentTimeMillis();
+    Assert.assertNull(budgeted.toSingular("violas", false, "en"));
+    Assert.assertTrue(System.currentTimeMillis() - start < 500);
+    Assert.assertEquals(1, stats.getCount(RunStats.Event.SINGULARISATION_QUEUED_OUT));
+    Assert.assertEquals(0, stats.getCount(RunStats.Event.SINGULARISATION_SKIPPED));
+    Assert.assertEquals(1, stats.getCount(RunStats.Event.SINGULARISATION_TIMEOUT));
+    Assert.assertEquals(1, prepared.get());
+
+    // free again once the stuck call ends
+    Thread.sleep(1000);
+    budgeted.setBudget(100, 2000);
+    Assert.assertEquals("cellos", budgeted.toSingular("cellos", false, "en"));
+    Assert.assertEquals(1, prepared.get());
+  }
+
+  @Test
+  public void singularisationBudgetExcludesLoad() {
+    RunStats stats = new RunStats();
+    Singulariser slowToLoad = new Singulariser() {
+      @Override
+      public String toSingular(String label, boolean full, String lang) {
+        return label.substring(0, label.length() - 1);
+      }
+
+      @Override
+      public void prepare(String lang) {
+        try {
+          Thread.sleep(500);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+    BudgetedSingulariser budgeted = new BudgetedSingulariser(slowToLoad, stats, 100, 100, 1);
+
+    // the loading takes longer than the budget, but it is not part of it
+    Assert.assertEquals("violin", budgeted.toSingular("violins", false, "en"));
+    Assert.assertEquals("viola", budgeted.toSingular("violas", false, "en"));
+    Assert.assertEquals(0, stats.getCount(RunStats.Event.SINGULARISATION_TIMEOUT));
+    Assert.assertEquals(1, stats.getCalls(RunStats.Stage.LOAD));
+    Assert.assertTrue(stats.getNanos(RunStats.Stage.LOAD) >= 500 * 1000000L);
+  }
+
+  @Test
+  public void runStatsPercentiles() {
+    RunStats stats = new RunStats();
+    for (int i = 1; i <= 1000; i++) stats.record(RunStats.Stage.LOOKUP, i * 1000L);
+
+    Assert.assertEquals(1000000, stats.getMaxNanos(RunStats.Stage.LOOKUP));
+    long p99 = stats.getPercentileNanos(RunStats.Stage.LOOKUP, 0.99);
+    Assert.assertTrue(p99 >= 990000 && p99 <= 990000 * 1.13);
+    long p50 = stats.getPercentileNanos(RunStats.Stage.LOOKUP, 0.5);
+    Assert.assertTrue(p50 >= 500000 && p50 <= 500000 * 1.13);
+    Assert.assertEquals(0, stats.getPercentileNanos(RunStats.Stage.APPLY, 0.99));
+  }
+
+  @Test
+  public void lemmatizerPool() {
+    LemmatizerPool pool = new LemmatizerPool("fr");
+    Assert.assertTrue(pool.getLoadedLangs().isEmpty());
+
+    // the language tag selects the pipeline, the default one is not loaded
+    Assert.assertEquals("violin", pool.toSingular("violins", false, "en"));
+    Assert.assertEquals("violin", pool.toSingular("violins", false, "en-GB"));
+    Assert.assertEquals(Collections.singleton("en"), pool.getLoadedLangs());
+
+    // an unsupported tag falls back on the default language
+    Assert.assertNotNull(pool.toSingular("violons", false, "xx"));
+    Assert.assertEquals(new HashSet<>(Arrays.asList("en", "fr")), pool.getLoadedLangs());
+    Assert.assertSame(pool.get("fr"), pool.get("xx"));
+  }
+
+  @Test
+  public void noPipelineWithoutSingularisation() throws IOException {
+    ClassLoader classLoader = getClass().getClassLoader();
+    String property2family = classLoader.getResource("property2family.csv").getFile();
+    String input = classLoader.getResource("input.ttl").getFile();
+    String vocabularyFolder = classLoader.getResource("vocabulary").getPath();
+
+    // same mapping, without singularisation
+    Path mapping = Files.createTempFile("property2family", ".csv");
+    Files.write(mapping, Files.readAllLines(new File(property2family).toPath()).stream()
+      .map(line -> line.replaceAll(",singular$", ","))
+      .collect(java.util.stream.Collectors.toList()));
+
+    List<String> calls = new ArrayList<>();
+    Singulariser spy = new Singulariser() {
+      @Override
+      public String toSingular(String label, boolean full, String lang) {
+        calls.add(label);
+        return null;
+      }
+
+      @Override
+      public void prepare(String lang) {
+        calls.add(lang);
+      }
+    };
+    List<Singulariser> defaults = VocabularyManager.getSingularisers();
+    try {
+      VocabularyManager.setSingularisers(Collections.singletonList(spy));
+      VocabularyManager.setVocabularyFolder(vocabularyFolder);
+      VocabularyManager.setLang("fr");
+
+      VocabularyManager.init(mapping.toString());
+      VocabularyManager.string2uri(RDFDataMgr.loadModel(input));
+      Assert.assertTrue(calls.isEmpty());
+
+      VocabularyManager.init(property2family);
+      VocabularyManager.string2uri(RDFDataMgr.loadModel(input));
+      Assert.assertFalse(calls.isEmpty());
+    } finally {
+      VocabularyManager.setSingularisers(defaults);
+    }
+  }
+
+  @Test
+  public void ruleBasedSingulariser() {
+    Singulariser s = new RuleBasedSingulariser();
+
+    Assert.assertEquals("violon", s.toSingular("violons", false, "fr"));
+    Assert.assertEquals("cornet a pistons", s.toSingular("cornets a pistons", false, "fr"));
+    Assert.assertEquals("cornet a piston", s.toSingular("cornets a pistons", true, "fr"));
+    Assert.assertEquals("choeur", s.toSingular("choeurs", false, "fr-FR"));
+    Assert.assertEquals("harmony", s.toSingular("harmonies", false, "en"));
+    Assert.assertEquals("bass", s.toSingular("bass", false, "en"));
+    Assert.assertEquals("violino", s.toSingular("violini", false, "it"));
+    Assert.assertNull(s.toSingular("Geigen", false, "de"));
+  }
+
+  @Test
+  public void ruleBasedSingulariserStopsOnSingular() throws IOException {
+    ClassLoader classLoader = getClass().getClassLoader();
+    String property2family = classLoader.getResource("property2family.csv").getFile();
+    String vocabularyFolder = classLoader.getResource("vocabulary").getPath();
+
+    List<String> fallbackCalls = new ArrayList<>();
+    Singulariser fallback = (label, full, lang) -> {
+      fallbackCalls.add(label + (full ? " (full)" : ""));
+      return null;
+    };
+    List<Singulariser> defaults = VocabularyManager.getSingularisers();
+    try {
+      VocabularyManager.setSingularisers(Arrays.asList(new RuleBasedSingulariser(), fallback));
+      VocabularyManager.setVocabularyFolder(vocabularyFolder);
+      VocabularyManager.init(property2family);
+      List<Vocabulary> mop = VocabularyManager.getFamily("mop").getVocabularies();
+
+      // already singular for the rules: the fallback is never asked
+      Assert.assertNotNull(VocabularyManager.searchInCategory("piano", "fr", mop, true));
+      Assert.assertNull(VocabularyManager.searchInCategory("zzzz qwerty", "fr", mop, true));
+      Assert.assertEquals(Collections.emptyList(), fallbackCalls);
+
+      // plural for the rules, but missed: one fallback call, no full pass on a single word
+      Assert.assertNull(VocabularyManager.searchInCategory("zzzzs", "fr", mop, true));
+      Assert.assertEquals(Collections.singletonList("zzzzs"), fallbackCalls);
+
+      // language not handled by the rules
+      fallbackCalls.clear();
+      Assert.assertNull(VocabularyManager.searchInCategory("zzzz qwerty", "de", mop, true));
+      Assert.assertEquals(Arrays.asList("zzzz qwerty", "zzzz qwerty (full)"), fallbackCalls);
+    } finally {
+      VocabularyManager.setSingularisers(defaults);
+    }
+  }
+
+  @Test
+  public void shardedRun() throws IOException {
+    ClassLoader classLoader = getClass().getClassLoader();
+    String property2family = classLoader.getResource("property2family.csv").getFile();
+    String vocabularyFolder = classLoader.getResource("vocabulary").getPath();
+    Path dir = Files.createTempDirectory("shards");
+    File snapshot = dir.resolve("vocabulary").toFile();
+    VocabularyCompiler.compile(new File(vocabularyFolder), snapshot, Lang.RDFTHRIFT);
+
+    // works pointing to a blank node with a nested blank node, and to a labelled resource
+    Model m = ModelFactory.createDefaultModel();
+    String ns = "http://example.org/";
+    Property u1 = m.createProperty("http://data.doremus.org/ontology#U1_used_medium_of_performance");
+    Property u2 = m.createProperty("http://data.doremus.org/ontology#U2_foresees_use_of_medium_of_performance");
+    String[] labels = {"mezzosopranos", "violons", "piano", "zzzz qwerty"};
+    for (int i = 0; i < 12; i++) {
+      String label = labels[i % labels.length];
+      m.createResource(ns + "work/" + i)
+        .addProperty(u2, m.createResource()
+          .addProperty(RDFS.label, label)
+          .addProperty(m.createProperty(ns + "note"), m.createResource()
+            .addProperty(m.createProperty(ns + "text"), "nested " + i)))
+        .addProperty(u1, m.createResource(ns + "mop/" + i).addProperty(RDFS.label, label, "fr"));
+    }
+    Path input = dir.resolve("input.nt");
+    try (OutputStream out = Files.newOutputStream(input)) {
+      RDFDataMgr.write(out, m, Lang.NTRIPLES);
+    }
+
+    try {
+      List<String> single = runShards(property2family, snapshot, input, 1);
+      List<String> sharded = runShards(property2family, snapshot, input, 3);
+
+      Assert.assertEquals(single, sharded);
+      Assert.assertTrue(sharded.stream().anyMatch(line -> line.contains("/iaml/mop/vms>")));
+      // the nested blank node of a matched label is gone, the one of an unmatched label is kept
+      Assert.assertTrue(sharded.stream().noneMatch(line -> line.contains("\"nested 0\"")));
+      Assert.assertTrue(sharded.stream().anyMatch(line -> line.contains("\"nested 3\"")));
+      // the blank node labels are the ones of the input
+      String inputText = new String(Files.readAllBytes(input), java.nio.charset.StandardCharsets.UTF_8);
+      Matcher blank = Pattern.compile("_:\\S+").matcher(String.join("\n", sharded));
+      Assert.assertTrue(blank.find());
+      do Assert.assertTrue(blank.group(), inputText.contains(blank.group() + " "));
+      while (blank.find());
+    } finally {
+      VocabularyManager.setLazyLoading(false);
+    }
+  }
+
+  @Test
+  public void shardedSort() throws IOException {
+    Path dir = Files.createTempDirectory("sort");
+    Path input = dir.resolve("input.nt");
+    Path output = dir.resolve("output.nt");
+    List<String> lines = new ArrayList<>();
+    for (int i = 0; i < 25; i++) lines.add("<http://example.org/" + (i * 7 % 25) + "> <http://example.org/p> \"" + i + "\" .");
+    lines.add(lines.get(3));
+    Files.write(input, lines);
+
+    // chunks of 4 lines: several chunks merged, without duplicates or leftover chunk files
+    ShardedRunner.sort(input, output, 4);
+    List<String> expected = new ArrayList<>(new java.util.TreeSet<>(lines));
+    Assert.assertEquals(expected, Files.readAllLines(output));
+    try (Stream<Path> files = Files.list(dir)) {
+      Assert.assertEquals(2, files.count());
+    }
+  }
+
+  /**
+   * Split, process and merge in the current JVM, checking that the blank node closures are not split
+   */
+  private List<String> runShards(String property2family, File snapshot, Path input, int n) throws IOException {
+    Path dir = input.getParent();
+    List<Path> shards = new ArrayList<>(), outputs = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      shards.add(dir.resolve(n + "-shard-" + i + ".nt"));
+      outputs.add(dir.resolve(n + "-output-" + i + ".nt"));
+    }
+    ShardedRunner.split(property2family, input.toString(), shards);
+
+    Pattern blank = Pattern.compile("_:\\S+");
+    Map<String, Integer> shardOf = new HashMap<>();
+    int used = 0;
+    for (int i = 0; i < n; i++) {
+      List<String> lines = Files.readAllLines(shards.get(i));
+      if (!lines.isEmpty()) used++;
+      for (String line : lines) {
+        Matcher matcher = blank.matcher(line);
+        while (matcher.find()) {
+          Integer previous = shardOf.put(matcher.group(), i);
+          Assert.assertTrue(previous == null || previous == i);
+        }
+        // labelled resources go with the works pointing to them
+        if (line.startsWith("<http://example.org/mop/"))
+          Assert.assertEquals(shardOf(shards, line.replaceAll("^<http://example.org/mop/(\\d+)>.*", "<http://example.org/work/$1>")), i);
+      }
+    }
+    Assert.assertTrue(n == 1 || used > 1);
+
+    for (int i = 0; i < n; i++)
+      ShardedRunner.worker(property2family, snapshot.getPath(), shards.get(i).toString(), outputs.get(i).toString(), "fr");
+    Path merged = dir.resolve(n + "-merged.nt");
+    ShardedRunner.merge(outputs, merged);
+    return Files.readAllLines(merged);
+  }
+
+  private int shardOf(List<Path> shards, String subject) throws IOException {
+    for (int i = 0; i < shards.size(); i++)
+      for (String line : Files.readAllLines(shards.get(i)))
+        if (line.startsWith(subject + " ")) return i;
+    return -1;
+  }
+
   private String toTtlString(Model m) {
     StringWriter sw = new StringWriter();
     m.write(sw, syntax);
@@ -0,0 +1,129 @@
+package org.doremus.string2vocabulary;
+
+import org.apache.jena.rdf.model.*;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.apache.jena.vocabulary.SKOS;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Generates synthetic datasets for load testing, using the properties of a property-vocabulary mapping
+ * and the labels of the real vocabularies.
+ * The labels are a mix of exact hits, misses, plurals, bracketed labels without brackets and language variants.
+ */
+public class SyntheticDataGenerator {
+  private static final String NS = "http://example.org/synthetic/";
+  private static final String[] LANGS = {"", "en", "fr", "it", "de"};
+  private static final String[] SYLLABLES = {"ka", "lo", "mi", "ne", "tru", "vas", "zel", "por", "qui", "bra"};
+
+  private final Random random;
+  private final List<String> properties = new ArrayList<>();
+  private final Map<String, List<Literal>> labels = new HashMap<>();
+  // the labels with a bracketed part, e.g. "cor (instrument)"
+  private final Map<String, List<Literal>> bracketedLabels = new HashMap<>();
+
+  /**
+   * @param property2family Table file with property-vocabulary mapping
+   * @param vocabularyFolder Folder containing the vocabularies
+   * @param seed Seed of the random generator, for reproducible datasets
+   */
+  public SyntheticDataGenerator(String property2family, String vocabularyFolder, long seed) throws IOException {
+    this.random = new Random(seed);
+
+    List<PropMap> propMaps;
+    try (Stream<String> lines = Files.lines(Paths.get(property2family))) {
+      propMaps = lines.map(PropMap::new).collect(Collectors.toList());
+    }
+
+    List<File> files = Vocabulary.listFiles(new File(vocabularyFolder));
+    Map<String, List<Literal>> familyLabels = new HashMap<>();
+    for (File file : files) {
+      String family = Vocabulary.categoryOf(Vocabulary.nameOf(file.getName()));
+      Model m = RDFDataMgr.loadModel(file.getPath(), Vocabulary.syntaxOf(file.getName()));
+      List<Literal> list = familyLabels.computeIfAbsent(family, k -> new ArrayList<>());
+      m.listObjectsOfProperty(SKOS.prefLabel).forEachRemaining(n -> { if (n.isLiteral()) list.add(n.asLiteral()); });
+      m.listObjectsOfProperty(SKOS.altLabel).forEachRemaining(n -> { if (n.isLiteral()) list.add(n.asLiteral()); });
+    }
+
+    for (PropMap pm : propMaps) {
+      properties.add(pm.getProperty());
+      List<Literal> list = familyLabels.getOrDefault(pm.getCategory(), Collections.emptyList());
+      labels.put(pm.getProperty(), list);
+      bracketedLabels.put(pm.getProperty(), list.stream()
+        .filter(l -> l.getLexicalForm().matches(".*\\([^)]+\\).*"))
+        .collect(Collectors.toList()));
+    }
+  }
+
+  /**
+   * Generate a model with the given number of records.
+   * Each record has a type, a numeric value and a label on one of the mapped properties,
+   * either as literal or as a blank node with rdfs:label.
+   */
+  public Model generate(int records) {
+    Model m = ModelFactory.createDefaultModel();
+    Property value = m.createProperty(NS + "value");
+    Resource type = m.createResource(NS + "Record");
+
+    for (int i = 0; i < records; i++) {
+      Resource record = m.createResource(NS + "record/" + i);
+      record.addProperty(RDF.type, type);
+      record.addLiteral(value, random.nextInt(100));
+
+      String p = properties.get(random.nextInt(properties.size()));
+      Property property = m.createProperty(p);
+      Literal label = label(m, labels.get(p), bracketedLabels.get(p));
+
+      if (random.nextInt(10) < 3)
+        record.addProperty(property, m.createResource().addProperty(RDFS.label, label));
+      else
+        record.addProperty(property, label);
+    }
+    return m;
+  }
+
+  private Literal label(Model m, List<Literal> candidates, List<Literal> bracketed) {
+    int dice = random.nextInt(10);
+    if (candidates.isEmpty() || dice < 3) return m.createLiteral(randomWords()); // miss
+
+    // a bracketed label of the vocabulary, to be matched without its brackets
+    boolean dropBrackets = dice == 4 && !bracketed.isEmpty();
+    List<Literal> from = dropBrackets ? bracketed : candidates;
+    Literal base = from.get(random.nextInt(from.size()));
+    String text = base.getLexicalForm();
+    String lang = base.getLanguage();
+    switch (dice) {
+      case 3: // plural of the first word
+        int space = text.indexOf(' ');
+        text = space < 0 ? text + "s" : text.substring(0, space) + "s" + text.substring(space);
+        break;
+      case 4: // without brackets
+        if (dropBrackets) text = text.replaceAll("\\([^)]+\\)", "").trim();
+        break;
+      case 5: // other language
+        lang = LANGS[random.nextInt(LANGS.length)];
+        break;
+      default: // hit
+    }
+    return lang.isEmpty() ? m.createLiteral(text) : m.createLiteral(text, lang);
+  }
+
+  private String randomWords() {
+    StringBuilder sb = new StringBuilder();
+    int words = 1 + random.nextInt(3);
+    for (int w = 0; w < words; w++) {
+      if (w > 0) sb.append(' ');
+      int syllables = 2 + random.nextInt(3);
+      for (int s = 0; s < syllables; s++) sb.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+    }
+    return sb.toString();
+  }
+}